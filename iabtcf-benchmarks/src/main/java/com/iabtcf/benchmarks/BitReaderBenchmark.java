@@ -0,0 +1,101 @@
+package com.iabtcf.benchmarks;
+
+/*-
+ * #%L
+ * IAB TCF Java Benchmarks
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iabtcf.utils.BitReader;
+
+/**
+ * Measures the primitive {@link BitReader} reads at byte aligned and unaligned offsets.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BitReaderBenchmark {
+
+    @Param({"0", "3", "7"})
+    public int offset;
+
+    @Param({"1000"})
+    public int bitSetLength;
+
+    private BitReader reader;
+
+    @Setup
+    public void setup() {
+        byte[] buffer = new byte[256];
+        new Random(42).nextBytes(buffer);
+        reader = new BitReader(buffer);
+    }
+
+    @Benchmark
+    public boolean readBits1() {
+        return reader.readBits1(offset);
+    }
+
+    @Benchmark
+    public byte readBits6() {
+        return reader.readBits6(offset);
+    }
+
+    @Benchmark
+    public int readBits12() {
+        return reader.readBits12(offset);
+    }
+
+    @Benchmark
+    public int readBits16() {
+        return reader.readBits16(offset);
+    }
+
+    @Benchmark
+    public int readBits24() {
+        return reader.readBits24(offset);
+    }
+
+    @Benchmark
+    public long readBits36() {
+        return reader.readBits36(offset);
+    }
+
+    @Benchmark
+    public BitSet readBitSet() {
+        return reader.readBitSet(offset, bitSetLength);
+    }
+}
@@ -0,0 +1,124 @@
+package com.iabtcf.benchmarks;
+
+/*-
+ * #%L
+ * IAB TCF Java Benchmarks
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.Random;
+
+import com.iabtcf.encoder.PublisherRestrictionEntry;
+import com.iabtcf.encoder.TCStringEncoder;
+import com.iabtcf.v2.RestrictionType;
+
+/**
+ * Consent strings used as benchmark input. The short entries are the test vectors of the decoder
+ * unit tests (TCStringV1Test, TCStringV2Test) and cover each vendor encoding and every combination
+ * of out-of-band segments. The large entries are generated with a fixed seed to resemble a CMP
+ * running against a full global vendor list.
+ */
+public enum Corpus {
+    V1_BITFIELD("BObdrPUOevsguAfDqFENCNAAAAAmeAAA"),
+    V1_RANGE("BOOzQoAOOzQoAAPAFSENCW-AIBACCACgACADIAHg"),
+    V2_BITFIELD(Segments.CORE),
+    V2_RANGE("COwBOpCOwBOpCLqAAAENAPCAAAAAAAAAAAAAFfwAQFfgUbABAUaAAA"),
+    V2_DISCLOSED("COwBOpCOwBOpCLqAAAENAPCAAAAAAAAAAAAAFfwAYFfAV-BVkAGBVYFWAAA"
+            + ".IFoEUQQgAIQwgIwQABAEAAAAOIAACAIAAAAQAIAgEAACEAAAAAgAQBAAAAAAAGBAAgAAAAAAAFAAECAAAgAAQARAEQAAAAAJAAIA"
+            + "AgAAAYQEAAAQmAgBC3ZAYzUw"),
+    V2_ALLOWED(Segments.CORE + Segments.ALLOWED),
+    V2_PUBLISHER_TC(Segments.CORE + Segments.PUBLISHER_TC),
+    V2_DISCLOSED_ALLOWED(Segments.CORE + Segments.DISCLOSED + Segments.ALLOWED),
+    V2_DISCLOSED_PUBLISHER_TC(Segments.CORE + Segments.DISCLOSED + Segments.PUBLISHER_TC),
+    V2_ALLOWED_PUBLISHER_TC(Segments.CORE + Segments.ALLOWED + Segments.PUBLISHER_TC),
+    V2_ALL_SEGMENTS(Segments.CORE + Segments.DISCLOSED + Segments.ALLOWED + Segments.PUBLISHER_TC),
+    V2_LARGE_BITFIELD(large(false)),
+    V2_LARGE_RANGE(large(true));
+
+    private static final int MAX_VENDOR_ID = 1000;
+
+    /**
+     * Segments of the TCStringV2Test vectors, combined above into the out-of-band variants.
+     */
+    private static final class Segments {
+        static final String CORE =
+                "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA";
+        static final String DISCLOSED = ".IBAgAAAgAIAwgAgAAAAEAAAACA";
+        static final String ALLOWED = ".QAagAQAgAIAwgA";
+        static final String PUBLISHER_TC = ".cAAAAAAAITg=";
+    }
+
+    private final String value;
+
+    Corpus(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    /**
+     * Builds a string with a ~1000 vendor core segment, publisher restrictions and a disclosed
+     * vendors segment. Sparse random vendor ids yield a bit field, long contiguous runs yield a
+     * range encoding.
+     */
+    private static String large(boolean contiguous) {
+        Random random = new Random(42);
+        TCStringEncoder.Builder builder = TCStringEncoder.newBuilder()
+            .version(2)
+            .created(Instant.parse("2020-06-01T00:00:00Z"))
+            .lastUpdated(Instant.parse("2020-06-01T00:00:00Z"))
+            .cmpId(10)
+            .cmpVersion(22)
+            .consentScreen(1)
+            .consentLanguage("EN")
+            .vendorListVersion(48)
+            .tcfPolicyVersion(2)
+            .publisherCC("DE");
+
+        for (int purpose = 1; purpose <= 10; purpose++) {
+            builder.addPurposesConsent(purpose);
+            if (purpose > 1) {
+                builder.addPurposesLITransparency(purpose);
+            }
+        }
+        builder.addSpecialFeatureOptIns(1);
+
+        for (int vendor = 1; vendor <= MAX_VENDOR_ID; vendor++) {
+            boolean consent = contiguous ? vendor % 250 != 0 : random.nextInt(3) != 0;
+            if (consent) {
+                builder.addVendorConsent(vendor);
+            }
+            if (contiguous ? vendor < 600 : random.nextBoolean()) {
+                builder.addVendorLegitimateInterest(vendor);
+            }
+            builder.addDisclosedVendors(vendor);
+        }
+
+        for (int purpose = 2; purpose <= 4; purpose++) {
+            builder.addPublisherRestrictionEntry(PublisherRestrictionEntry.newBuilder()
+                .purposeId(purpose)
+                .restrictionType(RestrictionType.REQUIRE_CONSENT)
+                .addVendor(1 + random.nextInt(MAX_VENDOR_ID), 1 + random.nextInt(MAX_VENDOR_ID))
+                .build());
+        }
+
+        return builder.encode();
+    }
+}
@@ -0,0 +1,73 @@
+package com.iabtcf.benchmarks;
+
+/*-
+ * #%L
+ * IAB TCF Java Benchmarks
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iabtcf.decoder.TCString;
+import com.iabtcf.encoder.TCStringEncoder;
+
+/**
+ * Measures {@link TCStringEncoder.Builder#encode()} and {@link TCStringEncoder.Builder#encode(StringBuilder)}
+ * for builders seeded from the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodeBenchmark {
+
+    @Param({"V1_RANGE", "V2_BITFIELD", "V2_RANGE", "V2_DISCLOSED_ALLOWED", "V2_LARGE_BITFIELD", "V2_LARGE_RANGE"})
+    public Corpus corpus;
+
+    private TCStringEncoder.Builder builder;
+    private final StringBuilder out = new StringBuilder();
+
+    @Setup
+    public void setup() {
+        builder = TCStringEncoder.newBuilder(TCString.decode(corpus.value()));
+    }
+
+    @Benchmark
+    public String encode() {
+        return builder.encode();
+    }
+
+    @Benchmark
+    public StringBuilder encodeReusingBuffers() {
+        out.setLength(0);
+        return builder.encode(out);
+    }
+}
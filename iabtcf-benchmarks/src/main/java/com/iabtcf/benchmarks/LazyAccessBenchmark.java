@@ -0,0 +1,101 @@
+package com.iabtcf.benchmarks;
+
+/*-
+ * #%L
+ * IAB TCF Java Benchmarks
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.iabtcf.decoder.DecoderOption;
+import com.iabtcf.decoder.TCString;
+import com.iabtcf.utils.IntIterable;
+
+/**
+ * Measures the cost of a lazy decode followed by a single field access, which is the typical
+ * request path of a service that only inspects a handful of fields. Every invocation decodes the
+ * string again since fields are memoized once accessed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LazyAccessBenchmark {
+
+    @Param({"V2_BITFIELD", "V2_RANGE", "V2_ALL_SEGMENTS", "V2_LARGE_BITFIELD", "V2_LARGE_RANGE"})
+    public Corpus corpus;
+
+    @Param({"755"})
+    public int vendorId;
+
+    private String consentString;
+
+    @Setup
+    public void setup() {
+        consentString = corpus.value();
+    }
+
+    @Benchmark
+    public int cmpId() {
+        return TCString.decode(consentString, DecoderOption.LAZY).getCmpId();
+    }
+
+    @Benchmark
+    public IntIterable purposesConsent() {
+        return TCString.decode(consentString, DecoderOption.LAZY).getPurposesConsent();
+    }
+
+    @Benchmark
+    public IntIterable vendorConsent() {
+        return TCString.decode(consentString, DecoderOption.LAZY).getVendorConsent();
+    }
+
+    @Benchmark
+    public boolean vendorConsentContains() {
+        return TCString.decode(consentString, DecoderOption.LAZY).getVendorConsent().contains(vendorId);
+    }
+
+    @Benchmark
+    public boolean hasVendorConsent() {
+        return TCString.decode(consentString, DecoderOption.LAZY).hasVendorConsent(vendorId);
+    }
+
+    @Benchmark
+    public IntIterable vendorLegitimateInterest() {
+        return TCString.decode(consentString, DecoderOption.LAZY).getVendorLegitimateInterest();
+    }
+
+    @Benchmark
+    public IntIterable disclosedVendors() {
+        return TCString.decode(consentString, DecoderOption.LAZY).getDisclosedVendors();
+    }
+}
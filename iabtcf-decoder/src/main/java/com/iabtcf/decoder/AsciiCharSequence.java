@@ -0,0 +1,74 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence view of a range of single-byte characters in a buffer. Reads use absolute
+ * indexes, so the view is safe to read from multiple threads as long as the buffer content does
+ * not change.
+ */
+final class AsciiCharSequence implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+
+    AsciiCharSequence(ByteBuffer buffer, int start, int end) {
+        if (start < 0 || start > end || end > buffer.limit()) {
+            throw new IndexOutOfBoundsException(String.format("invalid range [%d, %d)", start, end));
+        }
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException(String.format("index %d, length %d", index, end - start));
+        }
+        return (char) (buffer.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || from > to || to > end - start) {
+            throw new IndexOutOfBoundsException(String.format("invalid range [%d, %d)", from, to));
+        }
+        return new AsciiCharSequence(buffer, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
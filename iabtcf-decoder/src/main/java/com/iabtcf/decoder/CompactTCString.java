@@ -0,0 +1,629 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.StringJoiner;
+
+import com.iabtcf.exceptions.TCStringDecodeException;
+import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.utils.IntIterable;
+import com.iabtcf.utils.IntIterator;
+import com.iabtcf.utils.RangeIntIterable;
+import com.iabtcf.v2.PublisherRestriction;
+import com.iabtcf.v2.PublisherRestrictionIndex;
+import com.iabtcf.v2.RestrictionType;
+
+/**
+ * A fully decoded, immutable snapshot of a consent string optimized for a small heap footprint.
+ *
+ * Scalar fields are stored as primitives: timestamps as epoch deciseconds, two letter codes packed
+ * into a short and purpose and feature sets as bit masks. All vendor sets, including the vendors
+ * of publisher restrictions, share a single long array. IntIterable and PublisherRestriction
+ * values are created on access as views, so prefer {@link #hasVendorConsent(int)} and
+ * {@link #hasVendorLegitimateInterest(int)} when checking single vendors.
+ *
+ * Instances are only equal to other CompactTCString instances.
+ */
+public final class CompactTCString implements TCString {
+    private static final int FLAG_SERVICE_SPECIFIC = 1;
+    private static final int FLAG_NON_STANDARD_STACKS = 1 << 1;
+    private static final int FLAG_PURPOSE_ONE_TREATMENT = 1 << 2;
+    private static final int FLAG_DEFAULT_VENDOR_CONSENT = 1 << 3;
+
+    private static final int VENDOR_CONSENT = 0;
+    private static final int VENDOR_LEGITIMATE_INTEREST = 1;
+    private static final int DISCLOSED_VENDORS = 2;
+    private static final int ALLOWED_VENDORS = 3;
+    private static final int RESTRICTIONS = 4;
+
+    private static final byte[] NO_RESTRICTIONS = new byte[0];
+
+    private final byte version;
+    private final byte consentScreen;
+    private final byte tcfPolicyVersion;
+    private final byte flags;
+    private final short cmpId;
+    private final short cmpVersion;
+    private final short vendorListVersion;
+    private final short consentLanguage;
+    private final short publisherCC;
+    private final long created;
+    private final long lastUpdated;
+    private final int purposesConsent;
+    private final int purposesLITransparency;
+    private final int specialFeatureOptIns;
+    private final int pubPurposesConsent;
+    private final int pubPurposesLITransparency;
+    private final long customPurposesConsent;
+    private final long customPurposesLITransparency;
+
+    /**
+     * Vendor sets, bit n of set i is stored at bit n of the words [sections[i], sections[i + 1]).
+     */
+    private final long[] vendors;
+    private final int[] sections;
+
+    /**
+     * Publisher restriction keys, purpose id << 2 | restriction type.
+     */
+    private final byte[] restrictions;
+
+    /**
+     * Built on first access, so that instances that are never evaluated don't carry the index.
+     */
+    private volatile PublisherRestrictionIndex publisherRestrictionIndex;
+
+    private CompactTCString(TCString tcString) {
+        version = (byte) tcString.getVersion();
+        created = tcString.getCreated().toEpochMilli() / 100;
+        lastUpdated = tcString.getLastUpdated().toEpochMilli() / 100;
+        cmpId = (short) tcString.getCmpId();
+        cmpVersion = (short) tcString.getCmpVersion();
+        consentScreen = (byte) tcString.getConsentScreen();
+        consentLanguage = pack(tcString.getConsentLanguage());
+        vendorListVersion = (short) tcString.getVendorListVersion();
+        purposesConsent = (int) mask(tcString.getPurposesConsent());
+
+        List<long[]> sets = new ArrayList<>();
+        sets.add(words(tcString.getVendorConsent()));
+
+        if (version == 1) {
+            tcfPolicyVersion = 0;
+            flags = (byte) (tcString.getDefaultVendorConsent() ? FLAG_DEFAULT_VENDOR_CONSENT : 0);
+            publisherCC = 0;
+            purposesLITransparency = 0;
+            specialFeatureOptIns = 0;
+            pubPurposesConsent = 0;
+            pubPurposesLITransparency = 0;
+            customPurposesConsent = 0;
+            customPurposesLITransparency = 0;
+            restrictions = NO_RESTRICTIONS;
+        } else {
+            tcfPolicyVersion = (byte) tcString.getTcfPolicyVersion();
+            flags = (byte) ((tcString.isServiceSpecific() ? FLAG_SERVICE_SPECIFIC : 0)
+                    | (tcString.getUseNonStandardStacks() ? FLAG_NON_STANDARD_STACKS : 0)
+                    | (tcString.getPurposeOneTreatment() ? FLAG_PURPOSE_ONE_TREATMENT : 0));
+            publisherCC = pack(tcString.getPublisherCC());
+            purposesLITransparency = (int) mask(tcString.getPurposesLITransparency());
+            specialFeatureOptIns = (int) mask(tcString.getSpecialFeatureOptIns());
+            pubPurposesConsent = (int) mask(tcString.getPubPurposesConsent());
+            pubPurposesLITransparency = (int) mask(tcString.getPubPurposesLITransparency());
+            customPurposesConsent = mask(tcString.getCustomPurposesConsent());
+            customPurposesLITransparency = mask(tcString.getCustomPurposesLITransparency());
+
+            sets.add(words(tcString.getVendorLegitimateInterest()));
+            sets.add(words(tcString.getDisclosedVendors()));
+            sets.add(words(tcString.getAllowedVendors()));
+
+            List<PublisherRestriction> publisherRestrictions = tcString.getPublisherRestrictions();
+            restrictions = publisherRestrictions.isEmpty() ? NO_RESTRICTIONS : new byte[publisherRestrictions.size()];
+            for (int i = 0; i < restrictions.length; i++) {
+                PublisherRestriction pr = publisherRestrictions.get(i);
+                restrictions[i] = (byte) (pr.getPurposeId() << 2 | pr.getRestrictionType().ordinal());
+                sets.add(words(pr.getVendorIds()));
+            }
+        }
+
+        sections = new int[sets.size() + 1];
+        for (int i = 0; i < sets.size(); i++) {
+            sections[i + 1] = sections[i] + sets.get(i).length;
+        }
+        vendors = new long[sections[sets.size()]];
+        for (int i = 0; i < sets.size(); i++) {
+            long[] w = sets.get(i);
+            System.arraycopy(w, 0, vendors, sections[i], w.length);
+        }
+    }
+
+    /**
+     * Creates a compact snapshot of the specified consent string. All fields are decoded, so any
+     * decoding error is thrown here.
+     *
+     * @throws TCStringDecodeException
+     */
+    public static CompactTCString of(TCString tcString) {
+        if (tcString instanceof CompactTCString) {
+            return (CompactTCString) tcString;
+        }
+        return new CompactTCString(tcString);
+    }
+
+    private static short pack(String code) {
+        if (code.length() != 2) {
+            throw new IllegalArgumentException(String.format("invalid two letter code %s", code));
+        }
+        return (short) (((code.charAt(0) - 'A') & 0x3F) << 6 | ((code.charAt(1) - 'A') & 0x3F));
+    }
+
+    private static String unpack(short code) {
+        return String.valueOf(new char[] {(char) ('A' + (code >>> 6 & 0x3F)), (char) ('A' + (code & 0x3F))});
+    }
+
+    /**
+     * Bit n of the mask is set if n is part of the iterable, for values up to 63.
+     */
+    private static long mask(IntIterable ii) {
+        long mask = 0;
+        for (IntIterator i = ii.intIterator(); i.hasNext();) {
+            int n = i.nextInt();
+            if (n >= 0 && n < 64) {
+                mask |= 1L << n;
+            }
+        }
+        return mask;
+    }
+
+    private static long[] words(IntIterable ii) {
+        if (ii instanceof BitSetIntIterable) {
+            return ((BitSetIntIterable) ii).toBitSet().toLongArray();
+        }
+        if (ii instanceof RangeIntIterable) {
+            return ((RangeIntIterable) ii).toBitSet().toLongArray();
+        }
+
+        BitSet bs = new BitSet();
+        for (IntIterator i = ii.intIterator(); i.hasNext();) {
+            bs.set(i.nextInt());
+        }
+        return bs.toLongArray();
+    }
+
+    private static IntIterable fromMask(long mask) {
+        return BitSetIntIterable.from(BitSet.valueOf(new long[] {mask}));
+    }
+
+    private void checkV2() {
+        if (version == 1) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private boolean contains(int section, int value) {
+        if (value < 0) {
+            return false;
+        }
+        int word = sections[section] + (value >>> 6);
+        return word < sections[section + 1] && (vendors[word] & (1L << value)) != 0;
+    }
+
+    private IntIterable vendorSet(int section) {
+        return new VendorSet(section);
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public Instant getCreated() {
+        return Instant.ofEpochMilli(created * 100);
+    }
+
+    @Override
+    public Instant getLastUpdated() {
+        return Instant.ofEpochMilli(lastUpdated * 100);
+    }
+
+    @Override
+    public int getCmpId() {
+        return cmpId & 0xFFFF;
+    }
+
+    @Override
+    public int getCmpVersion() {
+        return cmpVersion & 0xFFFF;
+    }
+
+    @Override
+    public int getConsentScreen() {
+        return consentScreen;
+    }
+
+    @Override
+    public String getConsentLanguage() {
+        return unpack(consentLanguage);
+    }
+
+    @Override
+    public int getVendorListVersion() {
+        return vendorListVersion & 0xFFFF;
+    }
+
+    @Override
+    public IntIterable getPurposesConsent() {
+        return fromMask(purposesConsent & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public IntIterable getVendorConsent() {
+        return vendorSet(VENDOR_CONSENT);
+    }
+
+    @Override
+    public boolean hasVendorConsent(int vendorId) {
+        return contains(VENDOR_CONSENT, vendorId);
+    }
+
+    @Override
+    public boolean getDefaultVendorConsent() {
+        return hasFlag(FLAG_DEFAULT_VENDOR_CONSENT);
+    }
+
+    @Override
+    public int getTcfPolicyVersion() {
+        checkV2();
+        return tcfPolicyVersion;
+    }
+
+    @Override
+    public boolean isServiceSpecific() {
+        checkV2();
+        return hasFlag(FLAG_SERVICE_SPECIFIC);
+    }
+
+    @Override
+    public boolean getUseNonStandardStacks() {
+        checkV2();
+        return hasFlag(FLAG_NON_STANDARD_STACKS);
+    }
+
+    @Override
+    public IntIterable getSpecialFeatureOptIns() {
+        checkV2();
+        return fromMask(specialFeatureOptIns & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public IntIterable getPurposesLITransparency() {
+        checkV2();
+        return fromMask(purposesLITransparency & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public boolean getPurposeOneTreatment() {
+        checkV2();
+        return hasFlag(FLAG_PURPOSE_ONE_TREATMENT);
+    }
+
+    @Override
+    public String getPublisherCC() {
+        checkV2();
+        return unpack(publisherCC);
+    }
+
+    @Override
+    public IntIterable getVendorLegitimateInterest() {
+        checkV2();
+        return vendorSet(VENDOR_LEGITIMATE_INTEREST);
+    }
+
+    @Override
+    public boolean hasVendorLegitimateInterest(int vendorId) {
+        checkV2();
+        return contains(VENDOR_LEGITIMATE_INTEREST, vendorId);
+    }
+
+    @Override
+    public List<PublisherRestriction> getPublisherRestrictions() {
+        checkV2();
+        if (restrictions.length == 0) {
+            return Collections.emptyList();
+        }
+
+        List<PublisherRestriction> rv = new ArrayList<>(restrictions.length);
+        for (int i = 0; i < restrictions.length; i++) {
+            int key = restrictions[i] & 0xFF;
+            rv.add(new PublisherRestriction(key >>> 2, RestrictionType.from(key & 0x3), vendorSet(RESTRICTIONS + i)));
+        }
+        return Collections.unmodifiableList(rv);
+    }
+
+    @Override
+    public PublisherRestrictionIndex getPublisherRestrictionIndex() {
+        PublisherRestrictionIndex rv = publisherRestrictionIndex;
+        if (rv == null) {
+            publisherRestrictionIndex = rv = PublisherRestrictionIndex.of(getPublisherRestrictions());
+        }
+        return rv;
+    }
+
+    @Override
+    public IntIterable getAllowedVendors() {
+        checkV2();
+        return vendorSet(ALLOWED_VENDORS);
+    }
+
+    @Override
+    public IntIterable getDisclosedVendors() {
+        checkV2();
+        return vendorSet(DISCLOSED_VENDORS);
+    }
+
+    @Override
+    public IntIterable getPubPurposesConsent() {
+        checkV2();
+        return fromMask(pubPurposesConsent & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public IntIterable getPubPurposesLITransparency() {
+        checkV2();
+        return fromMask(pubPurposesLITransparency & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public IntIterable getCustomPurposesConsent() {
+        checkV2();
+        return fromMask(customPurposesConsent);
+    }
+
+    @Override
+    public IntIterable getCustomPurposesLITransparency() {
+        checkV2();
+        return fromMask(customPurposesLITransparency);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(vendors);
+        result = 31 * result + Arrays.hashCode(sections);
+        result = 31 * result + Arrays.hashCode(restrictions);
+        result = 31 * result + Long.hashCode(created);
+        result = 31 * result + Long.hashCode(lastUpdated);
+        result = 31 * result + (cmpId << 16 | cmpVersion);
+        result = 31 * result + (purposesConsent ^ purposesLITransparency);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        CompactTCString other = (CompactTCString) obj;
+        return version == other.version
+                && consentScreen == other.consentScreen
+                && tcfPolicyVersion == other.tcfPolicyVersion
+                && flags == other.flags
+                && cmpId == other.cmpId
+                && cmpVersion == other.cmpVersion
+                && vendorListVersion == other.vendorListVersion
+                && consentLanguage == other.consentLanguage
+                && publisherCC == other.publisherCC
+                && created == other.created
+                && lastUpdated == other.lastUpdated
+                && purposesConsent == other.purposesConsent
+                && purposesLITransparency == other.purposesLITransparency
+                && specialFeatureOptIns == other.specialFeatureOptIns
+                && pubPurposesConsent == other.pubPurposesConsent
+                && pubPurposesLITransparency == other.pubPurposesLITransparency
+                && customPurposesConsent == other.customPurposesConsent
+                && customPurposesLITransparency == other.customPurposesLITransparency
+                && Arrays.equals(sections, other.sections)
+                && Arrays.equals(vendors, other.vendors)
+                && Arrays.equals(restrictions, other.restrictions);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CompactTCString [getVersion()=");
+        builder.append(getVersion());
+        builder.append(", getCreated()=");
+        builder.append(getCreated());
+        builder.append(", getLastUpdated()=");
+        builder.append(getLastUpdated());
+        builder.append(", getCmpId()=");
+        builder.append(getCmpId());
+        builder.append(", getCmpVersion()=");
+        builder.append(getCmpVersion());
+        builder.append(", getConsentScreen()=");
+        builder.append(getConsentScreen());
+        builder.append(", getConsentLanguage()=");
+        builder.append(getConsentLanguage());
+        builder.append(", getVendorListVersion()=");
+        builder.append(getVendorListVersion());
+        builder.append(", getPurposesConsent()=");
+        builder.append(getPurposesConsent());
+        builder.append(", getVendorConsent()=");
+        builder.append(getVendorConsent());
+        if (version == 1) {
+            builder.append(", getDefaultVendorConsent()=");
+            builder.append(getDefaultVendorConsent());
+        } else {
+            builder.append(", getTcfPolicyVersion()=");
+            builder.append(getTcfPolicyVersion());
+            builder.append(", isServiceSpecific()=");
+            builder.append(isServiceSpecific());
+            builder.append(", getUseNonStandardStacks()=");
+            builder.append(getUseNonStandardStacks());
+            builder.append(", getSpecialFeatureOptIns()=");
+            builder.append(getSpecialFeatureOptIns());
+            builder.append(", getPurposesLITransparency()=");
+            builder.append(getPurposesLITransparency());
+            builder.append(", getPurposeOneTreatment()=");
+            builder.append(getPurposeOneTreatment());
+            builder.append(", getPublisherCC()=");
+            builder.append(getPublisherCC());
+            builder.append(", getVendorLegitimateInterest()=");
+            builder.append(getVendorLegitimateInterest());
+            builder.append(", getPublisherRestrictions()=");
+            builder.append(getPublisherRestrictions());
+            builder.append(", getDisclosedVendors()=");
+            builder.append(getDisclosedVendors());
+            builder.append(", getAllowedVendors()=");
+            builder.append(getAllowedVendors());
+            builder.append(", getPubPurposesConsent()=");
+            builder.append(getPubPurposesConsent());
+            builder.append(", getPubPurposesLITransparency()=");
+            builder.append(getPubPurposesLITransparency());
+            builder.append(", getCustomPurposesConsent()=");
+            builder.append(getCustomPurposesConsent());
+            builder.append(", getCustomPurposesLITransparency()=");
+            builder.append(getCustomPurposesLITransparency());
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * A view of one section of the shared vendor words.
+     */
+    private final class VendorSet extends IntIterable {
+        private final int section;
+
+        private VendorSet(int section) {
+            this.section = section;
+        }
+
+        @Override
+        public boolean contains(int value) {
+            return CompactTCString.this.contains(section, value);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            for (int i = sections[section]; i < sections[section + 1]; i++) {
+                if (vendors[i] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int size() {
+            int rv = 0;
+            for (int i = sections[section]; i < sections[section + 1]; i++) {
+                rv += Long.bitCount(vendors[i]);
+            }
+            return rv;
+        }
+
+        @Override
+        public IntIterator intIterator() {
+            return new IntIterator() {
+                private final int from = sections[section];
+                private final int to = sections[section + 1];
+                private int word = from;
+                private long pending = word < to ? vendors[word] : 0;
+
+                @Override
+                public boolean hasNext() {
+                    while (pending == 0) {
+                        if (++word >= to) {
+                            return false;
+                        }
+                        pending = vendors[word];
+                    }
+                    return true;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int rv = ((word - from) << 6) + Long.numberOfTrailingZeros(pending);
+                    pending &= pending - 1;
+                    return rv;
+                }
+
+                @Override
+                public Integer next() {
+                    return nextInt();
+                }
+            };
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 1;
+            for (int i = sections[section]; i < sections[section + 1]; i++) {
+                result = 31 * result + Long.hashCode(vendors[i]);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            VendorSet other = (VendorSet) obj;
+            return Arrays.equals(words(), other.words());
+        }
+
+        private long[] words() {
+            return Arrays.copyOfRange(vendors, sections[section], sections[section + 1]);
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner sj = new StringJoiner(", ", "{", "}");
+            for (IntIterator i = intIterator(); i.hasNext();) {
+                sj.add(Integer.toString(i.nextInt()));
+            }
+            return sj.toString();
+        }
+    }
+}
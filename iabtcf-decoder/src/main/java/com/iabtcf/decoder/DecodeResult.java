@@ -0,0 +1,92 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Objects;
+
+/**
+ * The outcome of decoding a single consent string as part of a batch. Either holds the decoded
+ * consent string or the exception that was thrown while decoding it.
+ */
+public final class DecodeResult {
+    private final String consentString;
+    private final TCString tcString;
+    private final RuntimeException error;
+
+    private DecodeResult(String consentString, TCString tcString, RuntimeException error) {
+        this.consentString = consentString;
+        this.tcString = tcString;
+        this.error = error;
+    }
+
+    static DecodeResult success(String consentString, TCString tcString) {
+        return new DecodeResult(consentString, Objects.requireNonNull(tcString), null);
+    }
+
+    static DecodeResult failure(String consentString, RuntimeException error) {
+        return new DecodeResult(consentString, null, Objects.requireNonNull(error));
+    }
+
+    /**
+     * The consent string that was decoded.
+     */
+    public String getConsentString() {
+        return consentString;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the decoded consent string or null if decoding failed
+     */
+    public TCString getTCString() {
+        return tcString;
+    }
+
+    /**
+     * @return the exception thrown while decoding or null if decoding succeeded. This is either a
+     *         TCStringDecodeException or an IllegalArgumentException for invalid Base64.
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * Returns the decoded consent string or throws the exception that occurred while decoding it.
+     */
+    public TCString get() {
+        if (error != null) {
+            throw error;
+        }
+        return tcString;
+    }
+
+    @Override
+    public String toString() {
+        return "DecodeResult{"
+                + "consentString="
+                + consentString
+                + (error == null ? ", tcString=" + tcString : ", error=" + error)
+                + '}';
+    }
+}
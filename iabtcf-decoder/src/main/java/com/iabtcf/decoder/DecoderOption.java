@@ -25,5 +25,13 @@ public enum DecoderOption {
      * Use lazy evaluation when decoding fields. A field is decoded when it is accessed for the
      * first time.
      */
-    LAZY;
+    LAZY,
+
+    /**
+     * Only validate and decode the core segment when decoding. Out-of-band segments, i.e.
+     * disclosed vendors, allowed vendors and publisher TC, are validated and decoded when one of
+     * their fields is accessed for the first time. Errors in these segments, including invalid
+     * Base64, are thrown on access. Has no effect on v1 strings.
+     */
+    CORE_ONLY;
 }
@@ -30,7 +30,6 @@ import static com.iabtcf.utils.FieldDefs.V1_VENDOR_LIST_VERSION;
 import static com.iabtcf.utils.FieldDefs.V1_VERSION;
 
 import java.time.Instant;
-import java.util.Base64;
 import java.util.Objects;
 
 import com.iabtcf.exceptions.ByteParseException;
@@ -51,8 +50,7 @@ public class PPCString {
 
     public static PPCString decode(String consentString)
             throws IllegalArgumentException, ByteParseException, UnsupportedVersionException {
-        byte[] bytes = Base64.getUrlDecoder().decode(consentString);
-        return new PPCString(new BitReader(bytes));
+        return new PPCString(new BitReader(consentString));
     }
 
     public int getVersion() {
@@ -21,19 +21,28 @@ package com.iabtcf.decoder;
  */
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import com.iabtcf.exceptions.ByteParseException;
 import com.iabtcf.exceptions.TCStringDecodeException;
 import com.iabtcf.exceptions.UnsupportedVersionException;
 import com.iabtcf.utils.IntIterable;
 import com.iabtcf.v2.PublisherRestriction;
+import com.iabtcf.v2.PublisherRestrictionIndex;
 
 public interface TCString {
 
     /**
      * Decodes an iabtcf compliant encoded string.
      *
+     * The returned instance is safe to share between threads, also when decoded lazily. Lazily
+     * decoded fields are memoized without locking; threads racing on the first access may each
+     * decode the same field.
+     *
      * @throws ByteParseException if version field failed to parse
      * @throws UnsupportedVersionException invalid version field
      * @throws IllegalArgumentException if consentString is not in valid Base64 scheme
@@ -43,6 +52,52 @@ public interface TCString {
         return TCStringDecoder.decode(consentString, options);
     }
 
+    /**
+     * Decodes an iabtcf compliant encoded string from a character sequence, e.g. a view of a
+     * buffer, without copying it into a String. See {@link #decode(String, DecoderOption...)}.
+     *
+     * The returned instance may read from consentString on access, so the sequence must not be
+     * modified afterwards.
+     *
+     * @throws ByteParseException if version field failed to parse
+     * @throws UnsupportedVersionException invalid version field
+     * @throws IllegalArgumentException if consentString is not in valid Base64 scheme
+     */
+    static TCString decode(CharSequence consentString, DecoderOption... options)
+            throws IllegalArgumentException, ByteParseException, UnsupportedVersionException {
+        return TCStringDecoder.decode(consentString, options);
+    }
+
+    /**
+     * Decodes a batch of consent strings. Decoding errors, that is TCStringDecodeException and
+     * IllegalArgumentException, are returned as part of the respective result instead of being
+     * thrown, so a single invalid string does not abort the batch. When decoding lazily, errors in
+     * fields other than the version surface when the field is accessed.
+     *
+     * @return the results in the order of consentStrings
+     */
+    static List<DecodeResult> decodeAll(List<String> consentStrings, DecoderOption... options) {
+        return TCStringDecoder.decodeAll(consentStrings, options);
+    }
+
+    /**
+     * Decodes a batch of consent strings in parallel on the specified pool. See
+     * {@link #decodeAll(List, DecoderOption...)}.
+     *
+     * @return the results in the order of consentStrings
+     */
+    static List<DecodeResult> decodeAll(List<String> consentStrings, ForkJoinPool pool, DecoderOption... options) {
+        return TCStringDecoder.decodeAll(consentStrings, pool, options);
+    }
+
+    /**
+     * Lazily maps a stream of consent strings to their decode results. The returned stream is
+     * parallel if consentStrings is. See {@link #decodeAll(List, DecoderOption...)}.
+     */
+    static Stream<DecodeResult> decodeAll(Stream<String> consentStrings, DecoderOption... options) {
+        return TCStringDecoder.decodeAll(consentStrings, options);
+    }
+
     /**
      * Version number of the encoding format
      *
@@ -143,6 +198,19 @@ public interface TCString {
      */
     IntIterable getVendorConsent();
 
+    /**
+     * Whether the vendor has consent to process this users personal data. Equivalent to
+     * getVendorConsent().contains(vendorId) but implementations may answer without decoding the
+     * entire vendor section.
+     *
+     * @since 1.0
+     * @throws TCStringDecodeException
+     * @return true if the vendor identifier is part of the vendor consents; false otherwise.
+     */
+    default boolean hasVendorConsent(int vendorId) {
+        return getVendorConsent().contains(vendorId);
+    }
+
     /**
      * Default consent for VendorIds not covered by a RangeEntry. VendorIds covered by a RangeEntry
      * have a consent value the opposite of DefaultConsent.
@@ -250,6 +318,20 @@ public interface TCString {
      */
     IntIterable getVendorLegitimateInterest();
 
+    /**
+     * Whether the vendor can process this user based on legitimate interest. Equivalent to
+     * getVendorLegitimateInterest().contains(vendorId) but implementations may answer without
+     * decoding the entire vendor section.
+     *
+     * @since 2.0
+     * @throws TCStringDecodeException
+     * @return true if the vendor identifier is part of the vendor legitimate interests; false
+     *         otherwise.
+     */
+    default boolean hasVendorLegitimateInterest(int vendorId) {
+        return getVendorLegitimateInterest().contains(vendorId);
+    }
+
     /**
      * The restrictions of a vendor's data processing by a publisher within the context of the users
      * trafficking their digital property.
@@ -260,6 +342,35 @@ public interface TCString {
      */
     List<PublisherRestriction> getPublisherRestrictions();
 
+    /**
+     * The publisher restrictions of a single purpose, in the order they are encoded.
+     *
+     * @since 2.0
+     * @throws TCStringDecodeException
+     * @return the list of publisher restrictions with the given purpose id.
+     */
+    default List<PublisherRestriction> getPublisherRestrictions(int purposeId) {
+        List<PublisherRestriction> rv = new ArrayList<>();
+        for (PublisherRestriction pr : getPublisherRestrictions()) {
+            if (pr.getPurposeId() == purposeId) {
+                rv.add(pr);
+            }
+        }
+        return Collections.unmodifiableList(rv);
+    }
+
+    /**
+     * The publisher restrictions indexed by purpose and restriction type, for constant time lookups
+     * of a vendor's restriction. Implementations may build the index once and reuse it.
+     *
+     * @since 2.0
+     * @throws TCStringDecodeException
+     * @return the indexed publisher restrictions.
+     */
+    default PublisherRestrictionIndex getPublisherRestrictionIndex() {
+        return PublisherRestrictionIndex.of(getPublisherRestrictions());
+    }
+
     /**
      * Part of the OOB segments expressing that a Vendor is using legal bases outside of the TCF to
      * process personal data.
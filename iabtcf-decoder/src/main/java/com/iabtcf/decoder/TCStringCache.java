@@ -0,0 +1,269 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.iabtcf.exceptions.ByteParseException;
+import com.iabtcf.exceptions.UnsupportedVersionException;
+
+/**
+ * A bounded cache of decoded consent strings keyed by the raw consent string.
+ *
+ * Entries are evicted in least recently used order once the maximum size is reached and,
+ * optionally, after a fixed time since they were decoded. The cache is split into independently
+ * locked segments, each holding an equal share of the maximum size, so the bound is approximate
+ * and eviction order is per segment.
+ *
+ * Decoding happens outside of any lock. Strings that fail to decode are not cached and the
+ * exception is propagated to the caller. Decoded instances are shared between callers; see
+ * {@link TCString#decode(String, DecoderOption...)} for their thread safety.
+ */
+public class TCStringCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final long expireAfterWriteNanos;
+    private final DecoderOption[] options;
+    private final LongSupplier ticker;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private TCStringCache(Builder builder) {
+        int nSegments = 1;
+        while (nSegments < MAX_SEGMENTS && nSegments * 2 <= builder.maximumSize) {
+            nSegments *= 2;
+        }
+
+        int segmentCapacity = (int) ((builder.maximumSize + nSegments - 1) / nSegments);
+        this.segments = new Segment[nSegments];
+        for (int i = 0; i < nSegments; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.segmentMask = nSegments - 1;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.options = builder.options;
+        this.ticker = builder.ticker;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the cached decoded consent string or decodes and caches it.
+     *
+     * @throws ByteParseException if version field failed to parse
+     * @throws UnsupportedVersionException invalid version field
+     * @throws IllegalArgumentException if consentString is not in valid Base64 scheme
+     */
+    public TCString decode(String consentString)
+            throws IllegalArgumentException, ByteParseException, UnsupportedVersionException {
+        Segment segment = segmentFor(consentString);
+        long now = ticker.getAsLong();
+
+        synchronized (segment) {
+            Entry entry = segment.get(consentString);
+            if (entry != null) {
+                if (!isExpired(entry, now)) {
+                    hitCount.increment();
+                    return entry.value;
+                }
+                segment.remove(consentString);
+                evictionCount.increment();
+            }
+        }
+
+        missCount.increment();
+        TCString value = TCString.decode(consentString, options);
+
+        synchronized (segment) {
+            segment.put(consentString, new Entry(value, now));
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the cached decoded consent string without decoding it on a miss.
+     *
+     * @return the decoded consent string or null if it is not cached
+     */
+    public TCString getIfPresent(String consentString) {
+        Segment segment = segmentFor(consentString);
+        long now = ticker.getAsLong();
+
+        synchronized (segment) {
+            Entry entry = segment.get(consentString);
+            if (entry != null && !isExpired(entry, now)) {
+                hitCount.increment();
+                return entry.value;
+            }
+        }
+
+        missCount.increment();
+        return null;
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * The number of cached entries, including expired entries that have not been evicted yet.
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * The number of entries removed because the cache was full or because they expired.
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    private Segment segmentFor(String consentString) {
+        int h = consentString.hashCode();
+        return segments[(h ^ (h >>> 16)) & segmentMask];
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return expireAfterWriteNanos > 0 && now - entry.writeTime >= expireAfterWriteNanos;
+    }
+
+    private static final class Entry {
+        private final TCString value;
+        private final long writeTime;
+
+        private Entry(TCString value, long writeTime) {
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictionCount.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public static class Builder {
+        private long maximumSize = 10_000;
+        private long expireAfterWriteNanos = 0;
+        private DecoderOption[] options = new DecoderOption[0];
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * The approximate maximum number of cached entries. Defaults to 10000.
+         *
+         * @throws IllegalArgumentException if maximumSize is less than 1
+         */
+        public Builder maximumSize(long maximumSize) throws IllegalArgumentException {
+            if (maximumSize < 1 || maximumSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(String.format("invalid maximum size %d", maximumSize));
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Entries expire after the specified duration since they were decoded. By default entries
+         * do not expire. Durations beyond the range of a long nanosecond count are treated as never
+         * expiring.
+         *
+         * @throws IllegalArgumentException if duration is not positive
+         */
+        public Builder expireAfterWrite(Duration duration) throws IllegalArgumentException {
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException(String.format("invalid duration %s", duration));
+            }
+            try {
+                this.expireAfterWriteNanos = duration.toNanos();
+            } catch (ArithmeticException e) {
+                this.expireAfterWriteNanos = Long.MAX_VALUE;
+            }
+            return this;
+        }
+
+        /**
+         * The options used when decoding consent strings on a miss.
+         */
+        public Builder options(DecoderOption... options) {
+            this.options = options.clone();
+            return this;
+        }
+
+        /**
+         * The nanosecond time source used for expiration. Defaults to System#nanoTime.
+         */
+        public Builder ticker(LongSupplier ticker) {
+            this.ticker = Objects.requireNonNull(ticker);
+            return this;
+        }
+
+        public TCStringCache build() {
+            return new TCStringCache(this);
+        }
+    }
+}
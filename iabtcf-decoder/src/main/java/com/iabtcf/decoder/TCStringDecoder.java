@@ -20,22 +20,47 @@ package com.iabtcf.decoder;
  * #L%
  */
 
-import java.util.Base64;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.iabtcf.exceptions.ByteParseException;
+import com.iabtcf.exceptions.TCStringDecodeException;
 import com.iabtcf.exceptions.UnsupportedVersionException;
 import com.iabtcf.utils.BitReader;
 import com.iabtcf.utils.FieldDefs;
 
 class TCStringDecoder {
-    static BitReader vectorFromString(String base64UrlEncodedString) {
-        // SegmentInputStream sis = new SegmentInputStream(base64UrlEncodedString, 0);
-        // InputStream is = DECODER.wrap(sis);
-        //
-        //
-        byte[] bytes = Base64.getUrlDecoder().decode(base64UrlEncodedString);
-        return new BitReader(bytes);
+    /**
+     * Returns the end index of every '.' separated segment of the consent string. Mirrors
+     * String#split in that trailing empty segments are dropped, with the exception of the first
+     * segment which is always present.
+     */
+    private static int[] segmentEnds(CharSequence consentString) {
+        int length = consentString.length();
+        while (length > 0 && consentString.charAt(length - 1) == '.') {
+            length--;
+        }
+
+        int count = 1;
+        for (int i = 0; i < length; i++) {
+            if (consentString.charAt(i) == '.') {
+                count++;
+            }
+        }
+
+        int[] ends = new int[count];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            if (consentString.charAt(i) == '.') {
+                ends[n++] = i;
+            }
+        }
+        ends[n] = length;
+
+        return ends;
     }
 
     /**
@@ -45,16 +70,15 @@ class TCStringDecoder {
      * @throws UnsupportedVersionException invalid version field
      * @throws IllegalArgumentException if consentString is not in valid Base64 scheme
      */
-    public static TCString decode(String consentString, DecoderOption... options)
+    public static TCString decode(CharSequence consentString, DecoderOption... options)
             throws IllegalArgumentException, ByteParseException, UnsupportedVersionException {
         EnumSet<DecoderOption> optSet = EnumSet.noneOf(DecoderOption.class);
         for (DecoderOption opt : options) {
             optSet.add(opt);
         }
 
-        String[] split = consentString.split("\\.");
-        String base64UrlEncodedString = split[0];
-        BitReader bitVector = vectorFromString(base64UrlEncodedString);
+        int[] ends = segmentEnds(consentString);
+        BitReader bitVector = new BitReader(consentString, 0, ends[0]);
 
         int version = bitVector.readBits6(FieldDefs.CORE_VERSION);
 
@@ -62,11 +86,13 @@ class TCStringDecoder {
             case 1:
                 return TCStringV1.fromBitVector(bitVector);
             case 2:
-                TCString tcString = null;
-                if (split.length > 1) {
-                    BitReader[] remaining = new BitReader[split.length - 1];
-                    for (int i = 1; i < split.length; i++) {
-                        remaining[i - 1] = vectorFromString(split[i]);
+                TCStringV2 tcString = null;
+                if (optSet.contains(DecoderOption.CORE_ONLY)) {
+                    tcString = TCStringV2.fromSegments(bitVector, consentString, ends);
+                } else if (ends.length > 1) {
+                    BitReader[] remaining = new BitReader[ends.length - 1];
+                    for (int i = 1; i < ends.length; i++) {
+                        remaining[i - 1] = new BitReader(consentString, ends[i - 1] + 1, ends[i]);
                     }
                     tcString = TCStringV2.fromBitVector(bitVector, remaining);
                 } else {
@@ -74,7 +100,7 @@ class TCStringDecoder {
                 }
 
                 if (!optSet.contains(DecoderOption.LAZY)) {
-                    tcString.hashCode();
+                    tcString.decodeEagerly(!optSet.contains(DecoderOption.CORE_ONLY));
                 }
 
                 return tcString;
@@ -82,4 +108,29 @@ class TCStringDecoder {
                 throw new UnsupportedVersionException("Version " + version + "is unsupported yet");
         }
     }
+
+    /**
+     * Decodes the consent string, capturing decoding errors in the result instead of throwing
+     * them.
+     */
+    static DecodeResult tryDecode(String consentString, DecoderOption... options) {
+        try {
+            return DecodeResult.success(consentString, decode(consentString, options));
+        } catch (TCStringDecodeException | IllegalArgumentException e) {
+            return DecodeResult.failure(consentString, e);
+        }
+    }
+
+    static Stream<DecodeResult> decodeAll(Stream<String> consentStrings, DecoderOption... options) {
+        return consentStrings.map(s -> tryDecode(s, options));
+    }
+
+    static List<DecodeResult> decodeAll(List<String> consentStrings, DecoderOption... options) {
+        return decodeAll(consentStrings.stream(), options).collect(Collectors.toList());
+    }
+
+    static List<DecodeResult> decodeAll(List<String> consentStrings, ForkJoinPool pool, DecoderOption... options) {
+        return pool.submit(() -> decodeAll(consentStrings.parallelStream(), options).collect(Collectors.toList()))
+            .join();
+    }
 }
@@ -0,0 +1,231 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+import com.iabtcf.exceptions.TCStringDecodeException;
+
+/**
+ * Decodes files holding one consent string per line, e.g. for offline audits of large exports.
+ *
+ * The file is memory mapped in chunks that end at line boundaries and the chunks are decoded in
+ * parallel. Consent strings are decoded straight from the mapped bytes without creating a String
+ * per line. Lines are separated by '\n', a trailing '\r' is ignored and empty lines are skipped.
+ *
+ * Decoded instances keep reading from the mapped file, so the file must not be modified while they
+ * are in use. Use {@link CompactTCString#of(TCString)} to keep a copy that is independent of the
+ * file.
+ */
+public final class TCStringFileDecoder {
+    private static final int SCAN_BUFFER_SIZE = 4096;
+
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final DecoderOption[] options;
+
+    /**
+     * Receives the result of every line. Methods are called concurrently from the threads of the
+     * pool and results arrive in no particular order.
+     */
+    public interface Sink {
+        /**
+         * @param offset the byte offset of the line in the file
+         */
+        void decoded(long offset, TCString tcString);
+
+        /**
+         * @param offset the byte offset of the line in the file
+         * @param consentString a view of the line, valid while the file is not modified
+         * @param error either a TCStringDecodeException or an IllegalArgumentException for invalid
+         *        Base64
+         */
+        void failed(long offset, CharSequence consentString, RuntimeException error);
+    }
+
+    private TCStringFileDecoder(Builder builder) {
+        this.chunkSize = builder.chunkSize;
+        this.pool = builder.pool;
+        this.options = builder.options;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Decodes every line of the file and sends the results to the sink. Returns once all lines
+     * have been processed. An exception thrown by the sink aborts decoding and is rethrown.
+     *
+     * @return the number of non-empty lines
+     * @throws IOException if the file could not be read
+     */
+    public long decode(Path file, Sink sink) throws IOException {
+        Objects.requireNonNull(sink);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            LongAdder lines = new LongAdder();
+
+            try {
+                pool.submit(() -> IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .forEach(i -> decodeChunk(channel, bounds[i], bounds[i + 1], sink, lines)))
+                    .join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            return lines.sum();
+        }
+    }
+
+    /**
+     * Splits the file into chunks of at least chunkSize bytes, each ending after a '\n' or at the
+     * end of the file.
+     */
+    private long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer scratch = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long pos = 0;
+        while (pos < size) {
+            pos = size - pos > chunkSize ? nextLineStart(channel, pos + chunkSize, size, scratch) : size;
+            bounds.add(pos);
+        }
+
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size, ByteBuffer scratch)
+            throws IOException {
+        long pos = from;
+        while (pos < size) {
+            scratch.clear();
+            int n = channel.read(scratch, pos);
+            if (n < 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (scratch.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private void decodeChunk(FileChannel channel, long from, long to, Sink sink, LongAdder lines) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int length = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i < length && buffer.get(i) != '\n') {
+                continue;
+            }
+
+            int lineEnd = i;
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                lines.increment();
+                decodeLine(new AsciiCharSequence(buffer, lineStart, lineEnd), from + lineStart, sink);
+            }
+            lineStart = i + 1;
+        }
+    }
+
+    private void decodeLine(CharSequence consentString, long offset, Sink sink) {
+        TCString tcString;
+        try {
+            tcString = TCStringDecoder.decode(consentString, options);
+        } catch (TCStringDecodeException | IllegalArgumentException e) {
+            sink.failed(offset, consentString, e);
+            return;
+        }
+        sink.decoded(offset, tcString);
+    }
+
+    public static class Builder {
+        private int chunkSize = 16 << 20;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+        private DecoderOption[] options = new DecoderOption[0];
+
+        private Builder() {
+        }
+
+        /**
+         * The approximate number of bytes mapped and decoded per task. Chunks are extended to the
+         * end of the line they end in. Defaults to 16 MiB.
+         *
+         * @throws IllegalArgumentException if chunkSize is less than 1 or larger than 1 GiB
+         */
+        public Builder chunkSize(int chunkSize) throws IllegalArgumentException {
+            if (chunkSize < 1 || chunkSize > 1 << 30) {
+                throw new IllegalArgumentException(String.format("invalid chunk size %d", chunkSize));
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * The pool used to decode chunks in parallel. Defaults to the common pool.
+         */
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = Objects.requireNonNull(pool);
+            return this;
+        }
+
+        /**
+         * The options used when decoding each line.
+         */
+        public Builder options(DecoderOption... options) {
+            this.options = options.clone();
+            return this;
+        }
+
+        public TCStringFileDecoder build() {
+            return new TCStringFileDecoder(this);
+        }
+    }
+}
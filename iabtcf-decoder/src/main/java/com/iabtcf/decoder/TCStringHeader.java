@@ -0,0 +1,260 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+
+import com.iabtcf.exceptions.ByteParseException;
+import com.iabtcf.exceptions.UnsupportedVersionException;
+import com.iabtcf.utils.Base64Url;
+
+/**
+ * The leading fields of the core segment, from the version up to the vendor list version and, for
+ * v2 strings, the TCF policy version. These fields are decoded directly from the first 23
+ * characters of a consent string without validating or decoding the remainder, which makes
+ * {@link #peek(CharSequence)} suitable for routing decisions on untrusted input. Use
+ * {@link TCString#decode(String, DecoderOption...)} to validate the whole string.
+ */
+public final class TCStringHeader {
+    private static final int VERSION_BITS = 6;
+    private static final int TIMESTAMP_BITS = 36;
+    private static final int CMP_BITS = 12;
+    private static final int CONSENT_SCREEN_BITS = 6;
+    private static final int LANGUAGE_BITS = 12;
+    private static final int VENDOR_LIST_VERSION_BITS = 12;
+    private static final int TCF_POLICY_VERSION_BITS = 6;
+    private static final int HEADER_CHARS = (VERSION_BITS + 2 * TIMESTAMP_BITS + 2 * CMP_BITS + CONSENT_SCREEN_BITS
+            + LANGUAGE_BITS + VENDOR_LIST_VERSION_BITS + TCF_POLICY_VERSION_BITS + 5) / 6;
+
+    private final int version;
+    private final long created;
+    private final long lastUpdated;
+    private final int cmpId;
+    private final int cmpVersion;
+    private final int consentScreen;
+    private final int consentLanguage;
+    private final int vendorListVersion;
+    private final int tcfPolicyVersion;
+
+    private TCStringHeader(CharSequence consentString, int limit) {
+        int offset = 0;
+        version = (int) read(consentString, limit, offset, VERSION_BITS);
+        if (version != 1 && version != 2) {
+            throw new UnsupportedVersionException("Version " + version + "is unsupported yet");
+        }
+        offset += VERSION_BITS;
+        created = read(consentString, limit, offset, TIMESTAMP_BITS);
+        offset += TIMESTAMP_BITS;
+        lastUpdated = read(consentString, limit, offset, TIMESTAMP_BITS);
+        offset += TIMESTAMP_BITS;
+        cmpId = (int) read(consentString, limit, offset, CMP_BITS);
+        offset += CMP_BITS;
+        cmpVersion = (int) read(consentString, limit, offset, CMP_BITS);
+        offset += CMP_BITS;
+        consentScreen = (int) read(consentString, limit, offset, CONSENT_SCREEN_BITS);
+        offset += CONSENT_SCREEN_BITS;
+        consentLanguage = (int) read(consentString, limit, offset, LANGUAGE_BITS);
+        offset += LANGUAGE_BITS;
+        vendorListVersion = (int) read(consentString, limit, offset, VENDOR_LIST_VERSION_BITS);
+        offset += VENDOR_LIST_VERSION_BITS;
+        tcfPolicyVersion = version == 2 ? (int) read(consentString, limit, offset, TCF_POLICY_VERSION_BITS) : -1;
+    }
+
+    /**
+     * Decodes the header fields of a consent string.
+     *
+     * @throws ByteParseException if the consent string is too short to hold the header
+     * @throws UnsupportedVersionException invalid version field
+     * @throws IllegalArgumentException if the header is not in valid Base64 scheme
+     */
+    public static TCStringHeader peek(CharSequence consentString)
+            throws IllegalArgumentException, ByteParseException, UnsupportedVersionException {
+        return new TCStringHeader(consentString, coreLength(consentString));
+    }
+
+    /**
+     * Returns the number of characters before the first segment delimiter, only looking as far as
+     * the header reaches.
+     */
+    private static int coreLength(CharSequence consentString) {
+        int n = Math.min(consentString.length(), HEADER_CHARS);
+        for (int i = 0; i < n; i++) {
+            if (consentString.charAt(i) == '.') {
+                return i;
+            }
+        }
+        return consentString.length();
+    }
+
+    /**
+     * Reads length bits, at most 63, starting at bit offset of the base64url encoded characters,
+     * which must lie within the first limit characters.
+     */
+    private static long read(CharSequence src, int limit, int offset, int length) {
+        int end = offset + length;
+        if ((end + 5) / 6 > limit) {
+            throw new ByteParseException(
+                    String.format("read %d bits at index %d out of bounds for length %d", length, offset, limit));
+        }
+
+        long rv = 0;
+        while (offset < end) {
+            int sextet = Base64Url.sextetOrThrow(src.charAt(offset / 6));
+            int bit = offset % 6;
+            int n = Math.min(6 - bit, end - offset);
+            rv = rv << n | (sextet >>> (6 - bit - n)) & ((1 << n) - 1);
+            offset += n;
+        }
+        return rv;
+    }
+
+    /**
+     * @see TCString#getVersion()
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @see TCString#getCreated()
+     */
+    public Instant getCreated() {
+        return Instant.ofEpochMilli(created * 100);
+    }
+
+    /**
+     * @see TCString#getLastUpdated()
+     */
+    public Instant getLastUpdated() {
+        return Instant.ofEpochMilli(lastUpdated * 100);
+    }
+
+    /**
+     * @see TCString#getCmpId()
+     */
+    public int getCmpId() {
+        return cmpId;
+    }
+
+    /**
+     * @see TCString#getCmpVersion()
+     */
+    public int getCmpVersion() {
+        return cmpVersion;
+    }
+
+    /**
+     * @see TCString#getConsentScreen()
+     */
+    public int getConsentScreen() {
+        return consentScreen;
+    }
+
+    /**
+     * @see TCString#getConsentLanguage()
+     */
+    public String getConsentLanguage() {
+        return String.valueOf(
+                new char[] {(char) ('A' + (consentLanguage >>> 6)), (char) ('A' + (consentLanguage & 0x3F))});
+    }
+
+    /**
+     * @see TCString#getVendorListVersion()
+     */
+    public int getVendorListVersion() {
+        return vendorListVersion;
+    }
+
+    /**
+     * @see TCString#getTcfPolicyVersion()
+     * @throws UnsupportedOperationException for v1 strings
+     */
+    public int getTcfPolicyVersion() {
+        if (version == 1) {
+            throw new UnsupportedOperationException();
+        }
+        return tcfPolicyVersion;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = version;
+        result = 31 * result + Long.hashCode(created);
+        result = 31 * result + Long.hashCode(lastUpdated);
+        result = 31 * result + cmpId;
+        result = 31 * result + cmpVersion;
+        result = 31 * result + consentScreen;
+        result = 31 * result + consentLanguage;
+        result = 31 * result + vendorListVersion;
+        result = 31 * result + tcfPolicyVersion;
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        TCStringHeader other = (TCStringHeader) obj;
+        return version == other.version
+                && created == other.created
+                && lastUpdated == other.lastUpdated
+                && cmpId == other.cmpId
+                && cmpVersion == other.cmpVersion
+                && consentScreen == other.consentScreen
+                && consentLanguage == other.consentLanguage
+                && vendorListVersion == other.vendorListVersion
+                && tcfPolicyVersion == other.tcfPolicyVersion;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TCStringHeader [getVersion()=");
+        builder.append(getVersion());
+        builder.append(", getCreated()=");
+        builder.append(getCreated());
+        builder.append(", getLastUpdated()=");
+        builder.append(getLastUpdated());
+        builder.append(", getCmpId()=");
+        builder.append(getCmpId());
+        builder.append(", getCmpVersion()=");
+        builder.append(getCmpVersion());
+        builder.append(", getConsentScreen()=");
+        builder.append(getConsentScreen());
+        builder.append(", getConsentLanguage()=");
+        builder.append(getConsentLanguage());
+        builder.append(", getVendorListVersion()=");
+        builder.append(getVendorListVersion());
+        if (version == 2) {
+            builder.append(", getTcfPolicyVersion()=");
+            builder.append(getTcfPolicyVersion());
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+}
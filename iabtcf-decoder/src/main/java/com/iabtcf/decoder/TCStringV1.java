@@ -192,12 +192,13 @@ class TCStringV1 implements TCString {
      * @throws InvalidRangeFieldException
      */
     private IntIterable fillVendorsV1(BitReader bbv, FieldDefs maxVendor, FieldDefs vendorField) {
-        BitSet bs = new BitSet();
+        BitSet bs;
 
         int maxV = bbv.readBits16(maxVendor);
         boolean isRangeEncoding = bbv.readBits1(maxVendor.getEnd(bbv));
 
         if (isRangeEncoding) {
+            bs = new BitSet();
             boolean defaultConsent = bbv.readBits1(FieldDefs.V1_VENDOR_DEFAULT_CONSENT);
             TCStringV2.vendorIdsFromRange(bbv, bs, FieldDefs.V1_VENDOR_NUM_ENTRIES.getOffset(bbv),
                     Optional.of(maxVendor));
@@ -206,12 +207,7 @@ class TCStringV1 implements TCString {
                 bs.flip(1, maxV + 1);
             }
         } else {
-            for (int i = 0; i < maxV; i++) {
-                boolean hasVendorConsent = bbv.readBits1(vendorField.getOffset(bbv) + i);
-                if (hasVendorConsent) {
-                    bs.set(i + 1);
-                }
-            }
+            bs = bbv.readBitSet(vendorField.getOffset(bbv), maxV, 1);
         }
 
         return BitSetIntIterable.from(bs);
@@ -31,7 +31,6 @@ import static com.iabtcf.utils.FieldDefs.CORE_IS_SERVICE_SPECIFIC;
 import static com.iabtcf.utils.FieldDefs.CORE_LAST_UPDATED;
 import static com.iabtcf.utils.FieldDefs.CORE_NUM_PUB_RESTRICTION;
 import static com.iabtcf.utils.FieldDefs.CORE_PUBLISHER_CC;
-import static com.iabtcf.utils.FieldDefs.CORE_PUB_RESTRICTION_ENTRY;
 import static com.iabtcf.utils.FieldDefs.CORE_PURPOSES_CONSENT;
 import static com.iabtcf.utils.FieldDefs.CORE_PURPOSES_LI_TRANSPARENCY;
 import static com.iabtcf.utils.FieldDefs.CORE_PURPOSE_ONE_TREATMENT;
@@ -49,6 +48,7 @@ import static com.iabtcf.utils.FieldDefs.DV_VENDOR_BITRANGE_FIELD;
 import static com.iabtcf.utils.FieldDefs.OOB_SEGMENT_TYPE;
 import static com.iabtcf.utils.FieldDefs.PPTC_CUSTOM_PURPOSES_CONSENT;
 import static com.iabtcf.utils.FieldDefs.PPTC_CUSTOM_PURPOSES_LI_TRANSPARENCY;
+import static com.iabtcf.utils.FieldDefs.PPTC_NUM_CUSTOM_PURPOSES;
 import static com.iabtcf.utils.FieldDefs.PPTC_PUB_PURPOSES_CONSENT;
 import static com.iabtcf.utils.FieldDefs.PPTC_PUB_PURPOSES_LI_TRANSPARENCY;
 
@@ -56,52 +56,66 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.Collection;
-import java.util.EnumSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.iabtcf.exceptions.InvalidRangeFieldException;
+import com.iabtcf.utils.Base64Url;
 import com.iabtcf.utils.BitReader;
 import com.iabtcf.utils.BitSetIntIterable;
 import com.iabtcf.utils.FieldDefs;
 import com.iabtcf.utils.IntIterable;
+import com.iabtcf.utils.RangeIntIterable;
 import com.iabtcf.v2.PublisherRestriction;
+import com.iabtcf.v2.PublisherRestrictionIndex;
 import com.iabtcf.v2.RestrictionType;
 import com.iabtcf.v2.SegmentType;
 
 class TCStringV2 implements TCString {
 
-    private int version;
-    private Instant consentRecordCreated;
-    private Instant consentRecordLastUpdated;
-    private int consentManagerProviderId;
-    private int consentManagerProviderVersion;
-    private int consentScreen;
-    private String consentLanguage;
-    private int vendorListVersion;
-    private int policyVersion;
-    private boolean isServiceSpecific;
-    private boolean useNonStandardStacks;
-    private IntIterable specialFeaturesOptInts;
-    private IntIterable purposesConsent;
-    private IntIterable purposesLITransparency;
-    private boolean isPurposeOneTreatment;
-    private String publisherCountryCode;
-    private IntIterable vendorConsents;
-    private IntIterable vendorLegitimateInterests;
-    private List<PublisherRestriction> publisherRestrictions;
-    private IntIterable disclosedVendors;
-    private IntIterable allowedVendors;
-    private IntIterable publisherPurposesConsent;
-    private IntIterable publisherPurposesLITransparency;
-    private IntIterable customPurposesConsent;
-    private IntIterable customPurposesLITransparency;
-
-    private final EnumSet<FieldDefs> cache = EnumSet.noneOf(FieldDefs.class);
+    /*
+     * Fields are memoized with the racy single-check idiom. Each value is computed from the
+     * immutable bit readers and published through a volatile write, so concurrent readers either
+     * observe the fully constructed value or compute an equal one themselves. Primitive fields are
+     * not memoized, reading them from the bit reader is as cheap as checking a memo.
+     */
+    private volatile Instant consentRecordCreated;
+    private volatile Instant consentRecordLastUpdated;
+    private volatile String consentLanguage;
+    private volatile IntIterable specialFeaturesOptInts;
+    private volatile IntIterable purposesConsent;
+    private volatile IntIterable purposesLITransparency;
+    private volatile String publisherCountryCode;
+    private volatile IntIterable vendorConsents;
+    private volatile IntIterable vendorLegitimateInterests;
+    private volatile List<PublisherRestriction> publisherRestrictions;
+    private volatile PublisherRestrictionIndex publisherRestrictionIndex;
+    private volatile int[] publisherRestrictionOffsets;
+    private volatile IntIterable disclosedVendors;
+    private volatile IntIterable allowedVendors;
+    private volatile IntIterable publisherPurposesConsent;
+    private volatile IntIterable publisherPurposesLITransparency;
+    private volatile IntIterable customPurposesConsent;
+    private volatile IntIterable customPurposesLITransparency;
+
     private final BitReader bbv;
-    private final Collection<BitReader> remainingVectors;
+
+    /**
+     * The out-of-band segments. When decoding only the core segment up front, readers are created
+     * on first use from the characters of src in [segmentEnds[i] + 1, segmentEnds[i + 1]).
+     */
+    private final AtomicReferenceArray<BitReader> remainingVectors;
+    private final CharSequence src;
+    private final int[] segmentEnds;
+
+    /**
+     * The index of the out-of-band segment of each SegmentType ordinal or -1, classified on first
+     * use.
+     */
+    private volatile int[] segments;
 
     private TCStringV2(BitReader bbv) {
         this(bbv, new BitReader[] {});
@@ -109,60 +123,308 @@ class TCStringV2 implements TCString {
 
     private TCStringV2(BitReader bbv, BitReader... theRest) {
         this.bbv = bbv;
-        this.remainingVectors = Arrays.asList(theRest);
+        this.remainingVectors = new AtomicReferenceArray<>(theRest);
+        this.src = null;
+        this.segmentEnds = null;
+    }
+
+    private TCStringV2(BitReader bbv, CharSequence src, int[] segmentEnds) {
+        this.bbv = bbv;
+        this.remainingVectors = new AtomicReferenceArray<>(segmentEnds.length - 1);
+        this.src = src;
+        this.segmentEnds = segmentEnds;
     }
 
     public static TCStringV2 fromBitVector(BitReader coreBitVector, BitReader... remainingVectors) {
         return new TCStringV2(coreBitVector, remainingVectors);
     }
 
+    /**
+     * Creates a consent string whose out-of-band segments are validated and read on first access.
+     *
+     * @param segmentEnds the end index in src of every '.' separated segment, starting with the
+     *        core segment
+     */
+    static TCStringV2 fromSegments(BitReader coreBitVector, CharSequence src, int[] segmentEnds) {
+        return new TCStringV2(coreBitVector, src, segmentEnds);
+    }
+
     private BitReader getSegment(SegmentType segmentType) {
         if (segmentType == SegmentType.DEFAULT) {
             return bbv;
         }
 
-        for (BitReader rbbv : remainingVectors) {
-            int rSegmentType = rbbv.readBits3(OOB_SEGMENT_TYPE);
-            if (segmentType == SegmentType.from(rSegmentType)) {
-                return rbbv;
+        int i = segments()[segmentType.ordinal()];
+        return i < 0 ? null : remainingVector(i);
+    }
+
+    private BitReader remainingVector(int i) {
+        BitReader rv = remainingVectors.get(i);
+        if (rv == null) {
+            rv = new BitReader(src, segmentEnds[i] + 1, segmentEnds[i + 1]);
+            remainingVectors.set(i, rv);
+        }
+        return rv;
+    }
+
+    /**
+     * Reads the segment type from the first character of a segment that has no reader yet, so
+     * that classifying does not validate the whole segment.
+     */
+    private int segmentType(int i) {
+        if (remainingVectors.get(i) == null) {
+            int start = segmentEnds[i] + 1;
+            int sextet = start < segmentEnds[i + 1] ? Base64Url.sextet(src.charAt(start)) : -1;
+            if (sextet >= 0) {
+                return sextet >>> (6 - OOB_SEGMENT_TYPE.getLength(bbv));
+            }
+        }
+        return remainingVector(i).readBits3(OOB_SEGMENT_TYPE);
+    }
+
+    /**
+     * Reads the type of every out-of-band segment once. If a type occurs more than once, the first
+     * segment of that type is used.
+     */
+    private int[] segments() {
+        int[] rv = segments;
+        if (rv == null) {
+            rv = new int[SegmentType.values().length];
+            Arrays.fill(rv, -1);
+            for (int i = 0; i < remainingVectors.length(); i++) {
+                int type = SegmentType.from(segmentType(i)).ordinal();
+                if (rv[type] < 0) {
+                    rv[type] = i;
+                }
+            }
+            segments = rv;
+        }
+        return rv;
+    }
+
+    /**
+     * Decodes and memoizes every field in a single pass. The core segment is read sequentially in
+     * the order the fields are encoded and each out-of-band segment is read once. Fields that are
+     * read directly from the bit reader on access are only skipped over.
+     *
+     * @param outOfBand whether to decode the out-of-band segments as well, otherwise they are
+     *        decoded on first access
+     * @throws InvalidRangeFieldException
+     */
+    void decodeEagerly(boolean outOfBand) {
+        Cursor core = new Cursor(bbv, CORE_CREATED.getOffset(bbv));
+        Instant created = core.readInstant(CORE_CREATED);
+        Instant lastUpdated = core.readInstant(CORE_LAST_UPDATED);
+        core.skip(CORE_CMP_ID);
+        core.skip(CORE_CMP_VERSION);
+        core.skip(CORE_CONSENT_SCREEN);
+        String language = core.readStr2(CORE_CONSENT_LANGUAGE);
+        core.skip(CORE_VENDOR_LIST_VERSION);
+        core.skip(CORE_TCF_POLICY_VERSION);
+        core.skip(CORE_IS_SERVICE_SPECIFIC);
+        core.skip(CORE_USE_NON_STANDARD_STOCKS);
+        IntIterable specialFeatures = core.readBitSet(CORE_SPECIAL_FEATURE_OPT_INS.getLength(bbv));
+        IntIterable purposes = core.readBitSet(CORE_PURPOSES_CONSENT.getLength(bbv));
+        IntIterable purposesLI = core.readBitSet(CORE_PURPOSES_LI_TRANSPARENCY.getLength(bbv));
+        core.skip(CORE_PURPOSE_ONE_TREATMENT);
+        String publisherCC = core.readStr2(CORE_PUBLISHER_CC);
+        IntIterable vendors = core.readVendors(CORE_VENDOR_MAX_VENDOR_ID);
+        IntIterable vendorsLI = core.readVendors(CORE_VENDOR_LI_MAX_VENDOR_ID);
+        List<PublisherRestriction> restrictions = new ArrayList<>();
+        fillPublisherRestrictions(restrictions, core.offset, bbv);
+
+        consentRecordCreated = created;
+        consentRecordLastUpdated = lastUpdated;
+        consentLanguage = language;
+        specialFeaturesOptInts = specialFeatures;
+        purposesConsent = purposes;
+        purposesLITransparency = purposesLI;
+        publisherCountryCode = publisherCC;
+        vendorConsents = vendors;
+        vendorLegitimateInterests = vendorsLI;
+        publisherRestrictions = Collections.unmodifiableList(restrictions);
+
+        if (outOfBand) {
+            decodeOutOfBand();
+        }
+    }
+
+    /**
+     * @throws InvalidRangeFieldException
+     */
+    private void decodeOutOfBand() {
+        IntIterable disclosed = BitSetIntIterable.EMPTY;
+        BitReader dvBbv = getSegment(SegmentType.DISCLOSED_VENDOR);
+        if (dvBbv != null) {
+            disclosed = new Cursor(dvBbv, DV_MAX_VENDOR_ID.getOffset(dvBbv)).readVendors(DV_MAX_VENDOR_ID);
+        }
+
+        IntIterable allowed = BitSetIntIterable.EMPTY;
+        BitReader avBbv = getSegment(SegmentType.ALLOWED_VENDOR);
+        if (avBbv != null) {
+            allowed = new Cursor(avBbv, AV_MAX_VENDOR_ID.getOffset(avBbv)).readVendors(AV_MAX_VENDOR_ID);
+        }
+
+        IntIterable pubPurposes = BitSetIntIterable.EMPTY;
+        IntIterable pubPurposesLI = BitSetIntIterable.EMPTY;
+        IntIterable customPurposes = BitSetIntIterable.EMPTY;
+        IntIterable customPurposesLI = BitSetIntIterable.EMPTY;
+        BitReader ptBbv = getSegment(SegmentType.PUBLISHER_TC);
+        if (ptBbv != null) {
+            Cursor pt = new Cursor(ptBbv, PPTC_PUB_PURPOSES_CONSENT.getOffset(ptBbv));
+            pubPurposes = pt.readBitSet(PPTC_PUB_PURPOSES_CONSENT.getLength(ptBbv));
+            pubPurposesLI = pt.readBitSet(PPTC_PUB_PURPOSES_LI_TRANSPARENCY.getLength(ptBbv));
+            int numCustomPurposes = ptBbv.readBits6(pt.offset);
+            pt.skip(PPTC_NUM_CUSTOM_PURPOSES);
+            customPurposes = pt.readBitSet(numCustomPurposes);
+            customPurposesLI = pt.readBitSet(numCustomPurposes);
+        }
+
+        disclosedVendors = disclosed;
+        allowedVendors = allowed;
+        publisherPurposesConsent = pubPurposes;
+        publisherPurposesLITransparency = pubPurposesLI;
+        customPurposesConsent = customPurposes;
+        customPurposesLITransparency = customPurposesLI;
+    }
+
+    /**
+     * Reads consecutive fields of a segment, advancing the offset past each field read.
+     */
+    private static final class Cursor {
+        private final BitReader bbv;
+        private int offset;
+
+        private Cursor(BitReader bbv, int offset) {
+            this.bbv = bbv;
+            this.offset = offset;
+        }
+
+        private void skip(FieldDefs field) {
+            offset += field.getLength(bbv);
+        }
+
+        private Instant readInstant(FieldDefs field) {
+            Instant rv = Instant.ofEpochMilli(bbv.readBits36(offset) * 100);
+            skip(field);
+            return rv;
+        }
+
+        private String readStr2(FieldDefs field) {
+            String rv = bbv.readStr2(offset);
+            skip(field);
+            return rv;
+        }
+
+        private IntIterable readBitSet(int length) {
+            BitSetIntIterable rv = BitSetIntIterable.from(bbv.readBitSet(offset, length, 1));
+            offset += length;
+            return rv;
+        }
+
+        /**
+         * Reads a max vendor id, encoding type and bit or range field section.
+         *
+         * @throws InvalidRangeFieldException
+         */
+        private IntIterable readVendors(FieldDefs maxVendor) {
+            int maxV = bbv.readBits16(offset);
+            skip(maxVendor);
+            boolean isRangeEncoding = bbv.readBits1(offset++);
+
+            if (isRangeEncoding) {
+                RangeIntIterable.Builder ranges = RangeIntIterable.newBuilder();
+                offset = vendorIdsFromRange(bbv, ranges, offset, maxV);
+                return ranges.build();
             }
+
+            BitSetIntIterable rv = BitSetIntIterable.from(bbv.readBitSet(offset, maxV, 1));
+            offset += maxV;
+            return rv;
         }
-        return null;
     }
 
     @Override
     public IntIterable getPubPurposesConsent() {
-        if (cache.add(PPTC_PUB_PURPOSES_CONSENT)) {
-            publisherPurposesConsent = BitSetIntIterable.EMPTY;
+        IntIterable rv = publisherPurposesConsent;
+        if (rv == null) {
+            rv = BitSetIntIterable.EMPTY;
 
             BitReader dvBbv = getSegment(SegmentType.PUBLISHER_TC);
             if (dvBbv != null) {
-                publisherPurposesConsent = fillBitSet(dvBbv, PPTC_PUB_PURPOSES_CONSENT);
+                rv = fillBitSet(dvBbv, PPTC_PUB_PURPOSES_CONSENT);
             }
+            publisherPurposesConsent = rv;
         }
-        return publisherPurposesConsent;
+        return rv;
     }
 
     /**
      * @throws InvalidRangeFieldException
      */
-    static BitSetIntIterable fillVendors(BitReader bbv, FieldDefs maxVendor, FieldDefs vendorField) {
-        BitSet bs = new BitSet();
-
+    static IntIterable fillVendors(BitReader bbv, FieldDefs maxVendor, FieldDefs vendorField) {
         int maxV = bbv.readBits16(maxVendor);
         boolean isRangeEncoding = bbv.readBits1(maxVendor.getEnd(bbv));
 
         if (isRangeEncoding) {
-            vendorIdsFromRange(bbv, bs, vendorField, Optional.of(maxVendor));
-        } else {
-            for (int i = 0; i < maxV; i++) {
-                boolean hasVendorConsent = bbv.readBits1(vendorField.getOffset(bbv) + i);
-                if (hasVendorConsent) {
-                    bs.set(i + 1);
+            RangeIntIterable.Builder ranges = RangeIntIterable.newBuilder();
+            vendorIdsFromRange(bbv, ranges, vendorField.getOffset(bbv), maxV);
+            return ranges.build();
+        }
+        return BitSetIntIterable.from(bbv.readBitSet(vendorField.getOffset(bbv), maxV, 1));
+    }
+
+    /**
+     * Tests for a single vendor without materializing the vendor section. Bit fields are answered
+     * by reading the one bit of the vendor, range entries are scanned until the first entry that
+     * covers the vendor. Range entries following a match are not validated.
+     *
+     * @throws InvalidRangeFieldException
+     */
+    static boolean hasVendor(BitReader bbv, FieldDefs maxVendor, FieldDefs vendorField, int vendorId) {
+        if (vendorId < 1) {
+            return false;
+        }
+
+        int maxV = bbv.readBits16(maxVendor);
+        boolean isRangeEncoding = bbv.readBits1(maxVendor.getEnd(bbv));
+
+        if (!isRangeEncoding) {
+            return vendorId <= maxV && bbv.readBits1(vendorField.getOffset(bbv) + vendorId - 1);
+        }
+
+        int numberOfVendorEntriesOffset = vendorField.getOffset(bbv);
+        int numberOfVendorEntries = bbv.readBits12(numberOfVendorEntriesOffset);
+        int offset = numberOfVendorEntriesOffset + FieldDefs.NUM_ENTRIES.getLength(bbv);
+
+        for (int j = 0; j < numberOfVendorEntries; j++) {
+            boolean isRangeEntry = bbv.readBits1(offset++);
+            int startOrOnlyVendorId = bbv.readBits16(offset);
+            offset += FieldDefs.START_OR_ONLY_VENDOR_ID.getLength(bbv);
+            if (isRangeEntry) {
+                int endVendorId = bbv.readBits16(offset);
+                offset += FieldDefs.START_OR_ONLY_VENDOR_ID.getLength(bbv);
+
+                if (startOrOnlyVendorId > endVendorId) {
+                    throw new InvalidRangeFieldException(String.format(
+                            "start vendor id (%d) is greater than endVendorId (%d)", startOrOnlyVendorId,
+                            endVendorId));
                 }
+
+                if (endVendorId > maxV) {
+                    throw new InvalidRangeFieldException(
+                            String.format("end vendor id (%d) is greater than max (%d)", endVendorId, maxV));
+                }
+
+                if (startOrOnlyVendorId <= vendorId && vendorId <= endVendorId) {
+                    return true;
+                }
+            } else if (startOrOnlyVendorId == vendorId) {
+                return true;
             }
         }
-        return BitSetIntIterable.from(bs);
+
+        return false;
     }
 
     /**
@@ -172,9 +434,31 @@ class TCStringV2 implements TCString {
      */
     static int vendorIdsFromRange(BitReader bbv, BitSet bs, int numberOfVendorEntriesOffset,
             Optional<FieldDefs> maxVendor) {
+        int maxV = maxVendor.map(maxVF -> bbv.readBits16(maxVF)).orElse(Integer.MAX_VALUE);
+        return vendorIdsFromRange(bbv, bs, numberOfVendorEntriesOffset, maxV);
+    }
+
+    /**
+     * Returns the offset following this range entry
+     *
+     * @throws InvalidRangeFieldException
+     */
+    static int vendorIdsFromRange(BitReader bbv, BitSet bs, int numberOfVendorEntriesOffset, int maxV) {
+        RangeIntIterable.Builder ranges = RangeIntIterable.newBuilder();
+        int offset = vendorIdsFromRange(bbv, ranges, numberOfVendorEntriesOffset, maxV);
+        bs.or(ranges.build().toBitSet());
+        return offset;
+    }
+
+    /**
+     * Returns the offset following this range entry
+     *
+     * @throws InvalidRangeFieldException
+     */
+    static int vendorIdsFromRange(BitReader bbv, RangeIntIterable.Builder ranges, int numberOfVendorEntriesOffset,
+            int maxV) {
         int numberOfVendorEntries = bbv.readBits12(numberOfVendorEntriesOffset);
         int offset = numberOfVendorEntriesOffset + FieldDefs.NUM_ENTRIES.getLength(bbv);
-        int maxV = maxVendor.map(maxVF -> bbv.readBits16(maxVF)).orElse(Integer.MAX_VALUE);
 
         for (int j = 0; j < numberOfVendorEntries; j++) {
             boolean isRangeEntry = bbv.readBits1(offset++);
@@ -195,9 +479,9 @@ class TCStringV2 implements TCString {
                             String.format("end vendor id (%d) is greater than max (%d)", endVendorId, maxV));
                 }
 
-                bs.set(startOrOnlyVendorId, endVendorId + 1);
+                ranges.add(startOrOnlyVendorId, endVendorId);
             } else {
-                bs.set(startOrOnlyVendorId);
+                ranges.add(startOrOnlyVendorId);
             }
         }
 
@@ -207,119 +491,116 @@ class TCStringV2 implements TCString {
     /**
      * @throws InvalidRangeFieldException
      */
-    static void vendorIdsFromRange(BitReader bbv, BitSet bs, FieldDefs vendorField, Optional<FieldDefs> maxVendor) {
-        vendorIdsFromRange(bbv, bs, vendorField.getOffset(bbv), maxVendor);
+    private int fillPublisherRestrictions(
+            List<PublisherRestriction> publisherRestrictions, int currentPointer, BitReader bitVector) {
+
+        int numberOfPublisherRestrictions = bitVector.readBits12(currentPointer);
+        currentPointer += CORE_NUM_PUB_RESTRICTION.getLength(bitVector);
+
+        for (int i = 0; i < numberOfPublisherRestrictions; i++) {
+            currentPointer = readPublisherRestriction(publisherRestrictions, currentPointer, bitVector);
+        }
+        return currentPointer;
     }
 
     /**
+     * Decodes the publisher restriction entry at currentPointer and adds it to publisherRestrictions.
+     * Returns the offset following the entry.
+     *
      * @throws InvalidRangeFieldException
      */
-    private int fillPublisherRestrictions(
+    private static int readPublisherRestriction(
             List<PublisherRestriction> publisherRestrictions, int currentPointer, BitReader bitVector) {
 
-        int numberOfPublisherRestrictions = bitVector.readBits12(currentPointer);
-        currentPointer += FieldDefs.NUM_ENTRIES.getLength(bitVector);
+        int purposeId = bitVector.readBits6(currentPointer);
+        currentPointer += FieldDefs.PURPOSE_ID.getLength(bitVector);
 
-        for (int i = 0; i < numberOfPublisherRestrictions; i++) {
-            int purposeId = bitVector.readBits6(currentPointer);
-            currentPointer += FieldDefs.PURPOSE_ID.getLength(bitVector);
+        int restrictionTypeId = bitVector.readBits2(currentPointer);
+        currentPointer += FieldDefs.RESTRICTION_TYPE.getLength(bitVector);
+        RestrictionType restrictionType = RestrictionType.from(restrictionTypeId);
 
-            int restrictionTypeId = bitVector.readBits2(currentPointer);
-            currentPointer += 2;
-            RestrictionType restrictionType = RestrictionType.from(restrictionTypeId);
+        RangeIntIterable.Builder ranges = RangeIntIterable.newBuilder();
+        currentPointer = vendorIdsFromRange(bitVector, ranges, currentPointer, Integer.MAX_VALUE);
+        PublisherRestriction publisherRestriction =
+                new PublisherRestriction(purposeId, restrictionType, ranges.build());
+        publisherRestrictions.add(publisherRestriction);
+        return currentPointer;
+    }
 
-            BitSet bs = new BitSet();
-            currentPointer = vendorIdsFromRange(bbv, bs, currentPointer, Optional.empty());
-            PublisherRestriction publisherRestriction =
-                    new PublisherRestriction(purposeId, restrictionType, BitSetIntIterable.from(bs));
-            publisherRestrictions.add(publisherRestriction);
+    /**
+     * @see FieldDefs#publisherRestrictionOffsets(BitReader)
+     */
+    private int[] getPublisherRestrictionOffsets() {
+        int[] rv = publisherRestrictionOffsets;
+        if (rv == null) {
+            publisherRestrictionOffsets = rv = FieldDefs.publisherRestrictionOffsets(bbv);
         }
-        return currentPointer;
+        return rv;
     }
 
     static BitSetIntIterable fillBitSet(BitReader bbv, FieldDefs field) {
-        int offset = field.getOffset(bbv);
-        int length = field.getLength(bbv);
-
-        BitSetIntIterable.Builder bs = BitSetIntIterable.newBuilder();
-        for (int i = 0; i < length; i++) {
-            if (bbv.readBits1(offset + i)) {
-                bs.add(i + 1);
-            }
-        }
-        return bs.build();
+        return BitSetIntIterable.from(bbv.readBitSet(field.getOffset(bbv), field.getLength(bbv), 1));
     }
 
     @Override
     public int getVersion() {
-        if (cache.add(CORE_VERSION)) {
-            version = bbv.readBits6(CORE_VERSION);
-        }
-        return version;
+        return bbv.readBits6(CORE_VERSION);
     }
 
     @Override
     public Instant getCreated() {
-        if (cache.add(CORE_CREATED)) {
-            consentRecordCreated = Instant.ofEpochMilli(bbv.readBits36(CORE_CREATED) * 100);
+        Instant rv = consentRecordCreated;
+        if (rv == null) {
+            consentRecordCreated = rv = Instant.ofEpochMilli(bbv.readBits36(CORE_CREATED) * 100);
         }
-        return consentRecordCreated;
+        return rv;
     }
 
     @Override
     public Instant getLastUpdated() {
-        if (cache.add(CORE_LAST_UPDATED)) {
-            consentRecordLastUpdated = Instant.ofEpochMilli(bbv.readBits36(CORE_LAST_UPDATED) * 100);
+        Instant rv = consentRecordLastUpdated;
+        if (rv == null) {
+            consentRecordLastUpdated = rv = Instant.ofEpochMilli(bbv.readBits36(CORE_LAST_UPDATED) * 100);
         }
-        return consentRecordLastUpdated;
+        return rv;
     }
 
     @Override
     public int getCmpId() {
-        if (cache.add(CORE_CMP_ID)) {
-            consentManagerProviderId = (short) bbv.readBits12(CORE_CMP_ID);
-        }
-        return consentManagerProviderId;
+        return bbv.readBits12(CORE_CMP_ID);
     }
 
     @Override
     public int getCmpVersion() {
-        if (cache.add(CORE_CMP_VERSION)) {
-            consentManagerProviderVersion = (short) bbv.readBits12(CORE_CMP_VERSION);
-        }
-        return consentManagerProviderVersion;
+        return bbv.readBits12(CORE_CMP_VERSION);
     }
 
     @Override
     public int getConsentScreen() {
-        if (cache.add(CORE_CONSENT_SCREEN)) {
-            consentScreen = bbv.readBits6(CORE_CONSENT_SCREEN);
-        }
-        return consentScreen;
+        return bbv.readBits6(CORE_CONSENT_SCREEN);
     }
 
     @Override
     public String getConsentLanguage() {
-        if (cache.add(CORE_CONSENT_LANGUAGE)) {
-            consentLanguage = bbv.readStr2(CORE_CONSENT_LANGUAGE);
+        String rv = consentLanguage;
+        if (rv == null) {
+            consentLanguage = rv = bbv.readStr2(CORE_CONSENT_LANGUAGE);
         }
-        return consentLanguage;
+        return rv;
     }
 
     @Override
     public int getVendorListVersion() {
-        if (cache.add(CORE_VENDOR_LIST_VERSION)) {
-            vendorListVersion = (short) bbv.readBits12(CORE_VENDOR_LIST_VERSION);
-        }
-        return vendorListVersion;
+        return bbv.readBits12(CORE_VENDOR_LIST_VERSION);
     }
 
     @Override
     public IntIterable getPurposesConsent() {
-        if (cache.add(CORE_PURPOSES_CONSENT)) {
-            purposesConsent = fillBitSet(bbv, CORE_PURPOSES_CONSENT);
+        IntIterable rv = purposesConsent;
+        if (rv == null) {
+            purposesConsent = rv = fillBitSet(bbv, CORE_PURPOSES_CONSENT);
         }
-        return purposesConsent;
+        return rv;
     }
 
     /**
@@ -327,10 +608,23 @@ class TCStringV2 implements TCString {
      */
     @Override
     public IntIterable getVendorConsent() {
-        if (cache.add(CORE_VENDOR_BITRANGE_FIELD)) {
-            vendorConsents = fillVendors(bbv, CORE_VENDOR_MAX_VENDOR_ID, CORE_VENDOR_BITRANGE_FIELD);
+        IntIterable rv = vendorConsents;
+        if (rv == null) {
+            vendorConsents = rv = fillVendors(bbv, CORE_VENDOR_MAX_VENDOR_ID, CORE_VENDOR_BITRANGE_FIELD);
+        }
+        return rv;
+    }
+
+    /**
+     * @throws InvalidRangeFieldException
+     */
+    @Override
+    public boolean hasVendorConsent(int vendorId) {
+        IntIterable rv = vendorConsents;
+        if (rv != null) {
+            return rv.contains(vendorId);
         }
-        return vendorConsents;
+        return hasVendor(bbv, CORE_VENDOR_MAX_VENDOR_ID, CORE_VENDOR_BITRANGE_FIELD, vendorId);
     }
 
     @Override
@@ -340,58 +634,49 @@ class TCStringV2 implements TCString {
 
     @Override
     public int getTcfPolicyVersion() {
-        if (cache.add(CORE_TCF_POLICY_VERSION)) {
-            policyVersion = bbv.readBits6(CORE_TCF_POLICY_VERSION);
-        }
-        return policyVersion;
+        return bbv.readBits6(CORE_TCF_POLICY_VERSION);
     }
 
     @Override
     public boolean isServiceSpecific() {
-        if (cache.add(CORE_IS_SERVICE_SPECIFIC)) {
-            isServiceSpecific = bbv.readBits1(CORE_IS_SERVICE_SPECIFIC);
-        }
-        return isServiceSpecific;
+        return bbv.readBits1(CORE_IS_SERVICE_SPECIFIC);
     }
 
     @Override
     public boolean getUseNonStandardStacks() {
-        if (cache.add(CORE_USE_NON_STANDARD_STOCKS)) {
-            useNonStandardStacks = bbv.readBits1(CORE_USE_NON_STANDARD_STOCKS);
-        }
-        return useNonStandardStacks;
+        return bbv.readBits1(CORE_USE_NON_STANDARD_STOCKS);
     }
 
     @Override
     public IntIterable getSpecialFeatureOptIns() {
-        if (cache.add(CORE_SPECIAL_FEATURE_OPT_INS)) {
-            specialFeaturesOptInts = fillBitSet(bbv, CORE_SPECIAL_FEATURE_OPT_INS);
+        IntIterable rv = specialFeaturesOptInts;
+        if (rv == null) {
+            specialFeaturesOptInts = rv = fillBitSet(bbv, CORE_SPECIAL_FEATURE_OPT_INS);
         }
-        return specialFeaturesOptInts;
+        return rv;
     }
 
     @Override
     public IntIterable getPurposesLITransparency() {
-        if (cache.add(CORE_PURPOSES_LI_TRANSPARENCY)) {
-            purposesLITransparency = fillBitSet(bbv, CORE_PURPOSES_LI_TRANSPARENCY);
+        IntIterable rv = purposesLITransparency;
+        if (rv == null) {
+            purposesLITransparency = rv = fillBitSet(bbv, CORE_PURPOSES_LI_TRANSPARENCY);
         }
-        return purposesLITransparency;
+        return rv;
     }
 
     @Override
     public boolean getPurposeOneTreatment() {
-        if (cache.add(CORE_PURPOSE_ONE_TREATMENT)) {
-            isPurposeOneTreatment = bbv.readBits1(CORE_PURPOSE_ONE_TREATMENT);
-        }
-        return isPurposeOneTreatment;
+        return bbv.readBits1(CORE_PURPOSE_ONE_TREATMENT);
     }
 
     @Override
     public String getPublisherCC() {
-        if (cache.add(CORE_PUBLISHER_CC)) {
-            publisherCountryCode = bbv.readStr2(CORE_PUBLISHER_CC);
+        String rv = publisherCountryCode;
+        if (rv == null) {
+            publisherCountryCode = rv = bbv.readStr2(CORE_PUBLISHER_CC);
         }
-        return publisherCountryCode;
+        return rv;
     }
 
     /**
@@ -399,11 +684,67 @@ class TCStringV2 implements TCString {
      */
     @Override
     public IntIterable getVendorLegitimateInterest() {
-        if (cache.add(CORE_VENDOR_LI_BITRANGE_FIELD)) {
+        IntIterable rv = vendorLegitimateInterests;
+        if (rv == null) {
             vendorLegitimateInterests =
-                    fillVendors(bbv, CORE_VENDOR_LI_MAX_VENDOR_ID, FieldDefs.CORE_VENDOR_LI_BITRANGE_FIELD);
+                    rv = fillVendors(bbv, CORE_VENDOR_LI_MAX_VENDOR_ID, FieldDefs.CORE_VENDOR_LI_BITRANGE_FIELD);
+        }
+        return rv;
+    }
+
+    /**
+     * @throws InvalidRangeFieldException
+     */
+    @Override
+    public boolean hasVendorLegitimateInterest(int vendorId) {
+        IntIterable rv = vendorLegitimateInterests;
+        if (rv != null) {
+            return rv.contains(vendorId);
         }
-        return vendorLegitimateInterests;
+        return hasVendor(bbv, CORE_VENDOR_LI_MAX_VENDOR_ID, CORE_VENDOR_LI_BITRANGE_FIELD, vendorId);
+    }
+
+    /**
+     * @throws InvalidRangeFieldException
+     */
+    @Override
+    public PublisherRestrictionIndex getPublisherRestrictionIndex() {
+        PublisherRestrictionIndex rv = publisherRestrictionIndex;
+        if (rv == null) {
+            List<PublisherRestriction> restrictions = publisherRestrictions;
+            if (restrictions != null) {
+                rv = PublisherRestrictionIndex.of(restrictions);
+            } else {
+                // only the entries of purposes that are looked up are decoded
+                int maxPurposeId = -1;
+                for (int offset : getPublisherRestrictionOffsets()) {
+                    maxPurposeId = Math.max(maxPurposeId, bbv.readBits6(offset));
+                }
+                rv = PublisherRestrictionIndex.lazy(maxPurposeId, this::getPublisherRestrictions);
+            }
+            publisherRestrictionIndex = rv;
+        }
+        return rv;
+    }
+
+    /**
+     * Decodes only the entries of the given purpose, unless every entry has been decoded already.
+     *
+     * @throws InvalidRangeFieldException
+     */
+    @Override
+    public List<PublisherRestriction> getPublisherRestrictions(int purposeId) {
+        if (publisherRestrictions != null) {
+            return TCString.super.getPublisherRestrictions(purposeId);
+        }
+
+        List<PublisherRestriction> rv = new ArrayList<>();
+        for (int offset : getPublisherRestrictionOffsets()) {
+            if (bbv.readBits6(offset) == purposeId) {
+                readPublisherRestriction(rv, offset, bbv);
+            }
+        }
+        return Collections.unmodifiableList(rv);
     }
 
     /**
@@ -411,11 +752,13 @@ class TCStringV2 implements TCString {
      */
     @Override
     public List<PublisherRestriction> getPublisherRestrictions() {
-        if (cache.add(CORE_PUB_RESTRICTION_ENTRY)) {
-            publisherRestrictions = new ArrayList<>();
-            fillPublisherRestrictions(publisherRestrictions, CORE_NUM_PUB_RESTRICTION.getOffset(bbv), bbv);
+        List<PublisherRestriction> rv = publisherRestrictions;
+        if (rv == null) {
+            rv = new ArrayList<>();
+            fillPublisherRestrictions(rv, CORE_NUM_PUB_RESTRICTION.getOffset(bbv), bbv);
+            publisherRestrictions = rv = Collections.unmodifiableList(rv);
         }
-        return publisherRestrictions;
+        return rv;
     }
 
     /**
@@ -423,15 +766,17 @@ class TCStringV2 implements TCString {
      */
     @Override
     public IntIterable getAllowedVendors() {
-        if (cache.add(AV_VENDOR_BITRANGE_FIELD)) {
-            allowedVendors = BitSetIntIterable.EMPTY;
+        IntIterable rv = allowedVendors;
+        if (rv == null) {
+            rv = BitSetIntIterable.EMPTY;
 
             BitReader dvBbv = getSegment(SegmentType.ALLOWED_VENDOR);
             if (dvBbv != null) {
-                allowedVendors = fillVendors(dvBbv, AV_MAX_VENDOR_ID, AV_VENDOR_BITRANGE_FIELD);
+                rv = fillVendors(dvBbv, AV_MAX_VENDOR_ID, AV_VENDOR_BITRANGE_FIELD);
             }
+            allowedVendors = rv;
         }
-        return allowedVendors;
+        return rv;
     }
 
     /**
@@ -439,55 +784,62 @@ class TCStringV2 implements TCString {
      */
     @Override
     public IntIterable getDisclosedVendors() {
-        if (cache.add(DV_VENDOR_BITRANGE_FIELD)) {
-            disclosedVendors = BitSetIntIterable.EMPTY;
+        IntIterable rv = disclosedVendors;
+        if (rv == null) {
+            rv = BitSetIntIterable.EMPTY;
 
             BitReader dvBbv = getSegment(SegmentType.DISCLOSED_VENDOR);
-
             if (dvBbv != null) {
-                disclosedVendors = fillVendors(dvBbv, DV_MAX_VENDOR_ID, DV_VENDOR_BITRANGE_FIELD);
+                rv = fillVendors(dvBbv, DV_MAX_VENDOR_ID, DV_VENDOR_BITRANGE_FIELD);
             }
+            disclosedVendors = rv;
         }
-        return disclosedVendors;
+        return rv;
     }
 
     @Override
     public IntIterable getPubPurposesLITransparency() {
-        if (cache.add(PPTC_PUB_PURPOSES_LI_TRANSPARENCY)) {
-            publisherPurposesLITransparency = BitSetIntIterable.EMPTY;
+        IntIterable rv = publisherPurposesLITransparency;
+        if (rv == null) {
+            rv = BitSetIntIterable.EMPTY;
 
             BitReader dvBbv = getSegment(SegmentType.PUBLISHER_TC);
             if (dvBbv != null) {
-                publisherPurposesLITransparency = fillBitSet(dvBbv, PPTC_PUB_PURPOSES_LI_TRANSPARENCY);
+                rv = fillBitSet(dvBbv, PPTC_PUB_PURPOSES_LI_TRANSPARENCY);
             }
+            publisherPurposesLITransparency = rv;
         }
-        return publisherPurposesLITransparency;
+        return rv;
     }
 
     @Override
     public IntIterable getCustomPurposesConsent() {
-        if (cache.add(PPTC_CUSTOM_PURPOSES_CONSENT)) {
-            customPurposesConsent = BitSetIntIterable.EMPTY;
+        IntIterable rv = customPurposesConsent;
+        if (rv == null) {
+            rv = BitSetIntIterable.EMPTY;
 
             BitReader dvBbv = getSegment(SegmentType.PUBLISHER_TC);
             if (dvBbv != null) {
-                customPurposesConsent = fillBitSet(dvBbv, PPTC_CUSTOM_PURPOSES_CONSENT);
+                rv = fillBitSet(dvBbv, PPTC_CUSTOM_PURPOSES_CONSENT);
             }
+            customPurposesConsent = rv;
         }
-        return customPurposesConsent;
+        return rv;
     }
 
     @Override
     public IntIterable getCustomPurposesLITransparency() {
-        if (cache.add(PPTC_CUSTOM_PURPOSES_LI_TRANSPARENCY)) {
-            customPurposesLITransparency = BitSetIntIterable.EMPTY;
+        IntIterable rv = customPurposesLITransparency;
+        if (rv == null) {
+            rv = BitSetIntIterable.EMPTY;
 
             BitReader dvBbv = getSegment(SegmentType.PUBLISHER_TC);
             if (dvBbv != null) {
-                customPurposesLITransparency = fillBitSet(dvBbv, PPTC_CUSTOM_PURPOSES_LI_TRANSPARENCY);
+                rv = fillBitSet(dvBbv, PPTC_CUSTOM_PURPOSES_LI_TRANSPARENCY);
             }
+            customPurposesLITransparency = rv;
         }
-        return customPurposesLITransparency;
+        return rv;
     }
 
     @Override
@@ -0,0 +1,104 @@
+package com.iabtcf.utils;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Lookup based base64url (RFC 4648 section 5) decoding of single characters. Validation follows
+ * the rules of {@link java.util.Base64#getUrlDecoder()} so that decoding straight from a
+ * CharSequence accepts and rejects the same input as decoding through a byte array.
+ *
+ * This is an internal only class and subject to change.
+ */
+public final class Base64Url {
+    private static final byte[] SEXTETS = new byte[128];
+
+    static {
+        Arrays.fill(SEXTETS, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            SEXTETS[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private Base64Url() {
+    }
+
+    /**
+     * Returns the 6 bit value of the character or -1 if it isn't part of the base64url alphabet.
+     */
+    public static int sextet(char c) {
+        return c < SEXTETS.length ? SEXTETS[c] : -1;
+    }
+
+    /**
+     * Returns the 6 bit value of the character.
+     *
+     * @throws IllegalArgumentException if c isn't part of the base64url alphabet
+     */
+    public static int sextetOrThrow(char c) {
+        int v = sextet(c);
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format("Illegal base64 character %x", (int) c));
+        }
+        return v;
+    }
+
+    /**
+     * Validates the characters of src in [start, end) and returns the number of data characters,
+     * that is, excluding any trailing padding.
+     *
+     * @throws IllegalArgumentException if the range is not valid base64url
+     */
+    public static int validate(CharSequence src, int start, int end) {
+        int idx = start;
+        while (idx < end && src.charAt(idx) != '=') {
+            sextetOrThrow(src.charAt(idx++));
+        }
+
+        int length = idx - start;
+        int padding = end - idx;
+        for (; idx < end; idx++) {
+            if (src.charAt(idx) != '=') {
+                throw new IllegalArgumentException("Input byte array has incorrect ending byte at " + idx);
+            }
+        }
+
+        int rem = length % 4;
+        if (padding == 0 && rem == 1) {
+            throw new IllegalArgumentException("Last unit does not have enough valid bits");
+        }
+
+        if (padding > 0 && !(rem == 2 && padding == 2) && !(rem == 3 && padding == 1)) {
+            throw new IllegalArgumentException("Input byte array has wrong 4-byte ending unit");
+        }
+
+        return length;
+    }
+
+    /**
+     * Returns the number of bytes represented by the specified number of data characters.
+     */
+    public static int decodedLength(int length) {
+        return (int) (((long) length * 6) >>> 3);
+    }
+}
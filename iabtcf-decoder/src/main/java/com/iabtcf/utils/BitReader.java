@@ -28,17 +28,24 @@ import com.iabtcf.exceptions.ByteParseException;
 
 /**
  * This is an internal only class and subject to change.
+ *
+ * Readers constructed from a byte array or a CharSequence are immutable and safe to share between
+ * threads. Readers constructed from an InputStream are not.
  */
 public class BitReader {
     private byte[] buffer;
     private int isrpos;
     private final InputStream is;
+    private final CharSequence src;
+    private final int srcOffset;
     final LengthOffsetCache cache;
 
     public BitReader(InputStream is) {
         this.buffer = new byte[4096];
         this.is = is;
         this.isrpos = 0;
+        this.src = null;
+        this.srcOffset = 0;
         cache = new LengthOffsetCache(this);
     }
 
@@ -46,9 +53,31 @@ public class BitReader {
         this.buffer = buffer;
         this.isrpos = buffer.length;
         this.is = null;
+        this.src = null;
+        this.srcOffset = 0;
         cache = new LengthOffsetCache(this);
     }
 
+    /**
+     * Reads the bits of the base64url encoded characters of src in [start, end) without first
+     * decoding them into an intermediate byte array. The characters are validated up front, src
+     * must not be modified afterwards.
+     *
+     * @throws IllegalArgumentException if the range is not valid base64url
+     */
+    public BitReader(CharSequence src, int start, int end) {
+        this.buffer = null;
+        this.isrpos = Base64Url.decodedLength(Base64Url.validate(src, start, end));
+        this.is = null;
+        this.src = src;
+        this.srcOffset = start;
+        cache = new LengthOffsetCache(this);
+    }
+
+    public BitReader(CharSequence src) {
+        this(src, 0, src.length());
+    }
+
     private void ensureCapacity(int length) {
         if (buffer.length >= length) {
             return;
@@ -73,7 +102,7 @@ public class BitReader {
 
         if (is == null) {
             throw new ByteParseException(String.format("read %d bytes at index %d out of bounds for buffer length %d",
-                    length, offset, buffer.length));
+                    length, offset, isrpos));
         }
 
         ensureCapacity(tlength);
@@ -121,7 +150,7 @@ public class BitReader {
 
         ensureReadable(startByte, 1);
 
-        return ((buffer[startByte] >>> (7 - bitPos)) & 1) == 1;
+        return ((byteAt(startByte) >>> (7 - bitPos)) & 1) == 1;
     }
 
     /**
@@ -172,11 +201,11 @@ public class BitReader {
 
         if (n < 6) {
             ensureReadable(startByte, 2);
-            return (byte) (unsafeReadLsb(buffer[startByte], 6 - n, n)
-                    | unsafeReadMsb(buffer[startByte + 1], 0, 6 - n));
+            return (byte) (unsafeReadLsb(byteAt(startByte), 6 - n, n)
+                    | unsafeReadMsb(byteAt(startByte + 1), 0, 6 - n));
         } else {
             ensureReadable(startByte, 1);
-            return unsafeReadMsb(buffer[startByte], bitPos, 6);
+            return unsafeReadMsb(byteAt(startByte), bitPos, 6);
         }
     }
 
@@ -192,11 +221,11 @@ public class BitReader {
 
         if (n < nbits) {
             ensureReadable(startByte, 2);
-            return (byte) (unsafeReadLsb(buffer[startByte], nbits - n, n)
-                    | unsafeReadMsb(buffer[startByte + 1], 0, nbits - n));
+            return (byte) (unsafeReadLsb(byteAt(startByte), nbits - n, n)
+                    | unsafeReadMsb(byteAt(startByte + 1), 0, nbits - n));
         } else {
             ensureReadable(startByte, 1);
-            return unsafeReadMsb(buffer[startByte], bitPos, nbits);
+            return unsafeReadMsb(byteAt(startByte), bitPos, nbits);
         }
     }
 
@@ -218,13 +247,13 @@ public class BitReader {
 
         if (n < 4) {
             ensureReadable(startByte, 3);
-            return (unsafeReadLsb(buffer[startByte], bitPos, n) & 0xFF) << 4
-                    | (buffer[startByte + 1] & 0xFF) << (bitPos - 4)
-                    | (unsafeReadMsb(buffer[startByte + 2], 0, bitPos - 4) & 0xFF);
+            return (unsafeReadLsb(byteAt(startByte), bitPos, n) & 0xFF) << 4
+                    | (byteAt(startByte + 1) & 0xFF) << (bitPos - 4)
+                    | (unsafeReadMsb(byteAt(startByte + 2), 0, bitPos - 4) & 0xFF);
         } else {
             ensureReadable(startByte, 2);
-            return (unsafeReadLsb(buffer[startByte], bitPos, n) & 0xFF) << 4
-                    | (unsafeReadMsb(buffer[startByte + 1], 0, 4 + bitPos) & 0xFF);
+            return (unsafeReadLsb(byteAt(startByte), bitPos, n) & 0xFF) << 4
+                    | (unsafeReadMsb(byteAt(startByte + 1), 0, 4 + bitPos) & 0xFF);
         }
     }
 
@@ -246,13 +275,13 @@ public class BitReader {
 
         if (n < 8) {
             ensureReadable(startByte, 3);
-            return ((unsafeReadLsb(buffer[startByte], bitPos, n) & 0xFF) << 8)
-                    | (buffer[startByte + 1] & 0xFF) << bitPos
-                    | (unsafeReadMsb(buffer[startByte + 2], 0, bitPos) & 0xFF);
+            return ((unsafeReadLsb(byteAt(startByte), bitPos, n) & 0xFF) << 8)
+                    | (byteAt(startByte + 1) & 0xFF) << bitPos
+                    | (unsafeReadMsb(byteAt(startByte + 2), 0, bitPos) & 0xFF);
         } else {
             ensureReadable(startByte, 2);
-            return (buffer[startByte] & 0xFF) << 8
-                    | (buffer[startByte + 1] & 0xFF);
+            return (byteAt(startByte) & 0xFF) << 8
+                    | (byteAt(startByte + 1) & 0xFF);
         }
     }
 
@@ -274,15 +303,15 @@ public class BitReader {
 
         if (n < 8) {
             ensureReadable(startByte, 4);
-            return ((unsafeReadLsb(buffer[startByte], bitPos, n) & 0xFF) << 16)
-                    | (buffer[startByte + 1] & 0xFF) << (8 + bitPos)
-                    | (buffer[startByte + 2] & 0xFF) << bitPos
-                    | (unsafeReadMsb(buffer[startByte + 3], 0, bitPos) & 0xFF);
+            return ((unsafeReadLsb(byteAt(startByte), bitPos, n) & 0xFF) << 16)
+                    | (byteAt(startByte + 1) & 0xFF) << (8 + bitPos)
+                    | (byteAt(startByte + 2) & 0xFF) << bitPos
+                    | (unsafeReadMsb(byteAt(startByte + 3), 0, bitPos) & 0xFF);
         } else {
             ensureReadable(startByte, 3);
-            return (buffer[startByte] & 0xFF) << 16
-                    | (buffer[startByte + 1] & 0xFF) << 8
-                    | (buffer[startByte + 2] & 0xFF);
+            return (byteAt(startByte) & 0xFF) << 16
+                    | (byteAt(startByte + 1) & 0xFF) << 8
+                    | (byteAt(startByte + 2) & 0xFF);
         }
     }
 
@@ -304,19 +333,19 @@ public class BitReader {
 
         if (n < 4) {
             ensureReadable(startByte, 6);
-            return ((long) unsafeReadLsb(buffer[startByte], bitPos, n) & 0xFF) << 28
-                    | ((long) buffer[startByte + 1] & 0xFF) << (20 + bitPos)
-                    | ((long) buffer[startByte + 2] & 0xFF) << (12 + bitPos)
-                    | ((long) buffer[startByte + 3] & 0xFF) << (4 + bitPos)
-                    | ((long) buffer[startByte + 4] & 0xFF) << (bitPos - 4)
-                    | ((long) unsafeReadMsb(buffer[startByte + 5], 0, bitPos - 4) & 0xFF);
+            return ((long) unsafeReadLsb(byteAt(startByte), bitPos, n) & 0xFF) << 28
+                    | ((long) byteAt(startByte + 1) & 0xFF) << (20 + bitPos)
+                    | ((long) byteAt(startByte + 2) & 0xFF) << (12 + bitPos)
+                    | ((long) byteAt(startByte + 3) & 0xFF) << (4 + bitPos)
+                    | ((long) byteAt(startByte + 4) & 0xFF) << (bitPos - 4)
+                    | ((long) unsafeReadMsb(byteAt(startByte + 5), 0, bitPos - 4) & 0xFF);
         } else {
             ensureReadable(startByte, 5);
-            return ((long) unsafeReadLsb(buffer[startByte], bitPos, n) & 0xFF) << 28
-                    | ((long) buffer[startByte + 1] & 0xFF) << (20 + bitPos)
-                    | ((long) buffer[startByte + 2] & 0xFF) << (12 + bitPos)
-                    | ((long) buffer[startByte + 3] & 0xFF) << (4 + bitPos)
-                    | ((long) unsafeReadMsb(buffer[startByte + 4], 0, 4 + bitPos) & 0xFF);
+            return ((long) unsafeReadLsb(byteAt(startByte), bitPos, n) & 0xFF) << 28
+                    | ((long) byteAt(startByte + 1) & 0xFF) << (20 + bitPos)
+                    | ((long) byteAt(startByte + 2) & 0xFF) << (12 + bitPos)
+                    | ((long) byteAt(startByte + 3) & 0xFF) << (4 + bitPos)
+                    | ((long) unsafeReadMsb(byteAt(startByte + 4), 0, 4 + bitPos) & 0xFF);
         }
     }
 
@@ -324,14 +353,74 @@ public class BitReader {
      * @throws ByteParseException
      */
     public BitSet readBitSet(int offset, int length) {
-        // TODO(mk): can we read larger chunks at a time?
-        BitSet bs = new BitSet(length);
-        for (int i = 0; i < length; i++) {
-            if (readBits1(offset + i)) {
-                bs.set(i);
+        return readBitSet(offset, length, 0);
+    }
+
+    /**
+     * Reads length bits starting at offset into a BitSet, the bit at offset is stored at index
+     * fromIndex. Bits are extracted up to 64 at a time.
+     *
+     * @throws ByteParseException
+     */
+    public BitSet readBitSet(int offset, int length, int fromIndex) {
+        if (length <= 0) {
+            return new BitSet();
+        }
+
+        int startByte = offset >>> 3;
+        ensureReadable(startByte, ((offset + length - 1) >>> 3) - startByte + 1);
+
+        long[] words = new long[(fromIndex + length + 63) >>> 6];
+        for (int i = 0; i < length; i += 64) {
+            int nbits = Math.min(64, length - i);
+            long lsbFirst = Long.reverse(unsafeReadLong(offset + i, nbits)) >>> (64 - nbits);
+
+            int index = fromIndex + i;
+            int word = index >>> 6;
+            int shift = index & 63;
+            words[word] |= lsbFirst << shift;
+            if (shift != 0 && shift + nbits > 64) {
+                words[word + 1] |= lsbFirst >>> (64 - shift);
             }
         }
-        return bs;
+
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Reads 1 to 64 bits, the first bit read is the most significant bit of the result. The
+     * caller must ensure that the bits are readable.
+     */
+    private long unsafeReadLong(int offset, int nbits) {
+        int index = offset >>> 3;
+        int bitPos = offset & 7;
+
+        long rv = byteAt(index) & (0xFF >>> bitPos);
+        int n = 8 - bitPos;
+
+        while (n < nbits) {
+            int take = Math.min(8, nbits - n);
+            rv = (rv << take) | ((byteAt(++index) & 0xFF) >>> (8 - take));
+            n += take;
+        }
+
+        return rv >>> (n - nbits);
+    }
+
+    /**
+     * Returns the byte at the specified index, the caller must ensure that it is readable.
+     */
+    private byte byteAt(int index) {
+        if (src == null) {
+            return buffer[index];
+        }
+
+        int bit = index << 3;
+        int pos = srcOffset + bit / 6;
+        int shift = bit % 6;
+
+        return (byte) (Base64Url.sextet(src.charAt(pos)) << (2 + shift)
+                | Base64Url.sextet(src.charAt(pos + 1)) >>> (4 - shift));
     }
 
     private byte unsafeReadMsb(byte from, int offset, int length) {
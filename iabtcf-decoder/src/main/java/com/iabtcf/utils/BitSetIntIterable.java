@@ -22,7 +22,11 @@ package com.iabtcf.utils;
 
 import java.util.BitSet;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
 
 /**
  * An implementation of the IntIterable based on BitSet.
@@ -41,6 +45,10 @@ public class BitSetIntIterable extends IntIterable {
             return ((BitSetIntIterable) ii).clone();
         }
 
+        if (ii instanceof RangeIntIterable) {
+            return new BitSetIntIterable(((RangeIntIterable) ii).toBitSet());
+        }
+
         BitSet bs = new BitSet();
         for (IntIterator i = ii.intIterator(); i.hasNext();) {
             bs.set(i.nextInt());
@@ -79,6 +87,20 @@ public class BitSetIntIterable extends IntIterable {
         this.bs = bs;
     }
 
+    /**
+     * Wraps the bit set without copying it, the caller must not modify it afterwards.
+     */
+    static BitSetIntIterable wrap(BitSet bs) {
+        return new BitSetIntIterable(bs);
+    }
+
+    /**
+     * Returns the backing bit set without copying it, the caller must not modify it.
+     */
+    BitSet bitSet() {
+        return bs;
+    }
+
     public BitSet toBitSet() {
         return (BitSet) bs.clone();
     }
@@ -96,6 +118,120 @@ public class BitSetIntIterable extends IntIterable {
         return bs.get(value);
     }
 
+    @Override
+    public boolean isEmpty() {
+        return bs.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return bs.cardinality();
+    }
+
+    @Override
+    public OptionalInt min() {
+        return bs.isEmpty() ? OptionalInt.empty() : OptionalInt.of(bs.nextSetBit(0));
+    }
+
+    @Override
+    public OptionalInt max() {
+        return bs.isEmpty() ? OptionalInt.empty() : OptionalInt.of(bs.length() - 1);
+    }
+
+    @Override
+    public void forEachInt(IntConsumer action) {
+        for (int i = bs.nextSetBit(0); i >= 0; i = bs.nextSetBit(i + 1)) {
+            action.accept(i);
+        }
+    }
+
+    @Override
+    public int[] toIntArray() {
+        int[] rv = new int[bs.cardinality()];
+        int n = 0;
+        for (int i = bs.nextSetBit(0); i >= 0; i = bs.nextSetBit(i + 1)) {
+            rv[n++] = i;
+        }
+        return rv;
+    }
+
+    /**
+     * Copies the receiver's set once and lets 'other' clear the missing bits word-wise or range-wise,
+     * depending on its representation.
+     */
+    @Override
+    public BitSetIntIterable and(IntIterable other) {
+        BitSet rv = (BitSet) bs.clone();
+        other.andInto(rv);
+        return new BitSetIntIterable(rv);
+    }
+
+    @Override
+    public BitSetIntIterable or(IntIterable other) {
+        BitSet rv = (BitSet) bs.clone();
+        other.orInto(rv);
+        return new BitSetIntIterable(rv);
+    }
+
+    @Override
+    public BitSetIntIterable andNot(IntIterable other) {
+        BitSet rv = (BitSet) bs.clone();
+        other.andNotInto(rv);
+        return new BitSetIntIterable(rv);
+    }
+
+    @Override
+    public void andInto(BitSet target) {
+        target.and(bs);
+    }
+
+    @Override
+    public void orInto(BitSet target) {
+        target.or(bs);
+    }
+
+    @Override
+    public void andNotInto(BitSet target) {
+        target.andNot(bs);
+    }
+
+    @Override
+    public boolean intersects(IntIterable other) {
+        if (other instanceof BitSetIntIterable) {
+            return bs.intersects(((BitSetIntIterable) other).bs);
+        }
+        return super.intersects(other);
+    }
+
+    @Override
+    public int intersectionCount(IntIterable other) {
+        if (!(other instanceof BitSetIntIterable)) {
+            return super.intersectionCount(other);
+        }
+
+        BitSet obs = ((BitSetIntIterable) other).bs;
+        int n = 0;
+        for (int i = bs.nextSetBit(0); i >= 0; i = bs.nextSetBit(i + 1)) {
+            i = obs.nextSetBit(i);
+            if (i < 0) {
+                break;
+            }
+            if (bs.get(i)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns a sized spliterator in ascending order that splits at word boundaries.
+     */
+    @Override
+    public Spliterator.OfInt spliterator() {
+        long[] words = bs.toLongArray();
+        return new WordSpliterator(words, 0, words.length, bs.cardinality());
+    }
+
     @Override
     public IntIterator intIterator() {
         return new IntIterator() {
@@ -147,6 +283,9 @@ public class BitSetIntIterable extends IntIterable {
         if (obj == null) {
             return false;
         }
+        if (obj instanceof RangeIntIterable) {
+            return obj.equals(this);
+        }
         if (getClass() != obj.getClass()) {
             return false;
         }
@@ -163,8 +302,98 @@ public class BitSetIntIterable extends IntIterable {
         return bs.toString();
     }
 
+    /**
+     * Iterates the set bits of words in [index, toWord) in ascending order, where the bits of the
+     * current word that have not been consumed yet are held in pending.
+     */
+    private static final class WordSpliterator implements Spliterator.OfInt {
+        private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED
+                | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+
+        private final long[] words;
+        private final int toWord;
+        private int index;
+        private long pending;
+        private int size;
+
+        private WordSpliterator(long[] words, int fromWord, int toWord, int size) {
+            this.words = words;
+            this.toWord = toWord;
+            this.index = fromWord;
+            this.pending = fromWord < toWord ? words[fromWord] : 0;
+            this.size = size;
+        }
+
+        private boolean advance() {
+            while (pending == 0) {
+                if (++index >= toWord) {
+                    return false;
+                }
+                pending = words[index];
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (!advance()) {
+                return false;
+            }
+            action.accept((index << 6) + Long.numberOfTrailingZeros(pending));
+            pending &= pending - 1;
+            size--;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            while (advance()) {
+                action.accept((index << 6) + Long.numberOfTrailingZeros(pending));
+                pending &= pending - 1;
+            }
+            size = 0;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int mid = (index + toWord) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+
+            int prefixSize = Long.bitCount(pending);
+            for (int i = index + 1; i < mid; i++) {
+                prefixSize += Long.bitCount(words[i]);
+            }
+
+            WordSpliterator prefix = new WordSpliterator(words, index, mid, prefixSize);
+            prefix.pending = pending;
+
+            index = mid;
+            pending = words[mid];
+            size -= prefixSize;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
     public static class Builder {
         private final BitSet bs;
+        private BitSetIntIterable view;
 
         private Builder() {
             this(new BitSet());
@@ -219,6 +448,17 @@ public class BitSetIntIterable extends IntIterable {
         public BitSetIntIterable build() {
             return new BitSetIntIterable((BitSet) bs.clone());
         }
+
+        /**
+         * Returns a view of the values added so far. Unlike {@link #build()} the set is not copied, so
+         * the view reflects any later change to this builder.
+         */
+        public BitSetIntIterable view() {
+            if (view == null) {
+                view = wrap(bs);
+            }
+            return view;
+        }
     }
 
     public static Builder newBuilder(IntIterable purposesConsent) {
@@ -20,18 +20,18 @@ package com.iabtcf.utils;
  * #L%
  */
 
-import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 /**
  * This enum defines all V1 and V2 consent string fields with their offsets and lengths. Since some
  * fields have dynamic values, the offset and length methods are a function of ByteBitVector
  * allowing a dynamic field access to the consent string.
  *
- * The enum takes care to cache the lengths and offsets of fields when appropriate. Whenever
- * possible, static field lengths and offsets are cached by the enum using the MemoizingFunction.
- * Due to the dynamic nature of some fields, computing the offsets and lengths can only be done at
- * runtime when a consent string is parsed. For such fields, their values are cached by the
- * ByteBitVector used to parse the consent string.
+ * The enum takes care to cache the lengths and offsets of fields when appropriate. Static field
+ * lengths and offsets are computed once when the enum is initialized. Due to the dynamic nature of
+ * some fields, computing the offsets and lengths can only be done at runtime when a consent string
+ * is parsed. For such fields, their values are laid out and cached by the BitReader used to parse
+ * the consent string.
  *
  * All fields following a dynamic field are treated as a dynamic field.
  */
@@ -85,8 +85,8 @@ public enum FieldDefs {
     PPTC_NUM_CUSTOM_PURPOSES(6),
     PPTC_CUSTOM_PURPOSES_CONSENT(new LengthSupplier() {
         @Override
-        public Integer apply(BitReader t) {
-            return Integer.valueOf(t.readBits6(PPTC_NUM_CUSTOM_PURPOSES.getOffset(t)));
+        public int applyAsInt(BitReader t) {
+            return t.readBits6(PPTC_NUM_CUSTOM_PURPOSES.getOffset(t));
         }
 
         @Override
@@ -96,7 +96,7 @@ public enum FieldDefs {
     }),
     PPTC_CUSTOM_PURPOSES_LI_TRANSPARENCY(new LengthSupplier() {
         @Override
-        public Integer apply(BitReader t) {
+        public int applyAsInt(BitReader t) {
             // same length as PPTC_CUSTOM_PURPOSES_CONSENT
             return PPTC_CUSTOM_PURPOSES_CONSENT.getLength(t);
         }
@@ -143,7 +143,7 @@ public enum FieldDefs {
     V1_PPC_CUSTOM_PURPOSES_BITFIELD(new LengthSupplier() {
 
         @Override
-        public Integer apply(BitReader t) {
+        public int applyAsInt(BitReader t) {
             return Byte.toUnsignedInt(t.readBits6(FieldDefs.V1_PPC_NUMBER_CUSTOM_PURPOSES.getOffset(t)));
         }
 
@@ -153,36 +153,58 @@ public enum FieldDefs {
         }
     });
 
-    private OffsetSupplier offset;
-    private LengthSupplier length;
-    private volatile boolean isDynamic = false;
-    private volatile boolean isDynamicInit = false;
+    private static final FieldDefs[] FIELDS = values();
+
+    static {
+        // static layout, computed in ordinal order since offsets depend on preceding fields
+        for (FieldDefs field : FIELDS) {
+            field.isDynamic = field.offset.isDynamic() || field.length.isDynamic();
+            if (!field.length.isDynamic()) {
+                field.staticLength = field.length.applyAsInt(null);
+            }
+            if (!field.offset.isDynamic() && field.offset != OffsetSupplier.NOT_SUPPORTED) {
+                field.staticOffset = field.offset.applyAsInt(null);
+            }
+        }
+    }
+
+    private final OffsetSupplier offset;
+    private final LengthSupplier length;
+    private final boolean isOffsetFromPrevious;
+    private boolean isDynamic;
+    private int staticOffset = -1;
+    private int staticLength = -1;
 
     FieldDefs(int length, FieldDefs field) {
         assert field != this;
 
         this.length = LengthSupplier.constant(length);
         this.offset = OffsetSupplier.from(field);
+        this.isOffsetFromPrevious = false;
     }
 
     FieldDefs(int length, OffsetSupplier offset) {
         this.length = LengthSupplier.constant(length);
         this.offset = offset;
+        this.isOffsetFromPrevious = false;
     }
 
     FieldDefs(final int length, int offset) {
         this.length = LengthSupplier.constant(length);
         this.offset = OffsetSupplier.constant(offset);
+        this.isOffsetFromPrevious = false;
     }
 
     FieldDefs(LengthSupplier length) {
         this.length = length;
         this.offset = OffsetSupplier.fromPrevious(this);
+        this.isOffsetFromPrevious = true;
     }
 
     FieldDefs(final int length) {
         this.length = LengthSupplier.constant(length);
         this.offset = OffsetSupplier.fromPrevious(this);
+        this.isOffsetFromPrevious = true;
     }
 
     /**
@@ -190,10 +212,6 @@ public enum FieldDefs {
      * being processed.
      */
     protected boolean isDynamic() {
-        if (!isDynamicInit) {
-            isDynamic = offset.isDynamic() || length.isDynamic();
-            isDynamicInit = true;
-        }
         return isDynamic;
     }
 
@@ -203,21 +221,27 @@ public enum FieldDefs {
     public int getLength() {
         assert (length.isDynamic() == false);
 
-        return length.apply(null);
+        return staticLength;
     }
 
     /**
      * Returns the length of the field.
      */
     public int getLength(BitReader bbv) {
-        return bbv.cache.getLength(this, length);
+        if (staticLength >= 0) {
+            return staticLength;
+        }
+        return bbv.cache.getLength(this);
     }
 
     /**
      * Returns the offset of the field.
      */
     public int getOffset(BitReader bbv) {
-        return bbv.cache.getOffset(this, offset);
+        if (staticOffset >= 0) {
+            return staticOffset;
+        }
+        return bbv.cache.getOffset(this);
     }
 
     /**
@@ -228,48 +252,47 @@ public enum FieldDefs {
     }
 
     /**
-     * The offset of the nth field depends on the length and offset of the nth-1 field. This class
-     * is used to cache offset + length of static fields to avoid querying parent fields.
-     *
-     * Both the value and it's dynamic state are cached.
-     *
-     * Dynamic fields are not cached at the enum level and are instead resolved through the BitReader.
+     * Returns the offset of every publisher restriction entry of the core segment. The entries are
+     * only skipped over, their vendor ranges are neither decoded nor validated.
      */
-    private static abstract class MemoizingFunction
-            implements LengthSupplier, OffsetSupplier, Function<BitReader, Integer> {
-        private volatile boolean dynamicInitialized = false;
-        private volatile boolean isDynamic = false;
-        private volatile Integer value;
+    public static int[] publisherRestrictionOffsets(BitReader bbv) {
+        return PublisherRestrictionUtils.entryOffsets(bbv, CORE_NUM_PUB_RESTRICTION.getOffset(bbv));
+    }
 
-        public abstract Integer doCompute(BitReader t);
+    /**
+     * Whether the offset of this field is only known once the offset of the preceding field is.
+     */
+    boolean isOffsetFromPrevious() {
+        return isOffsetFromPrevious;
+    }
 
-        /**
-         * implementation must be thread-safe
-         */
-        @Override
-        public abstract boolean isDynamic();
+    boolean hasStaticOffset() {
+        return staticOffset >= 0;
+    }
 
-        @Override
-        public Integer apply(BitReader t) {
-            if (isDynamicPvt()) {
-                return doCompute(t);
-            } else if (value == null) {
-                value = doCompute(t);
-            }
+    FieldDefs previous() {
+        return FIELDS[ordinal() - 1];
+    }
 
-            return value;
-        }
+    static FieldDefs fromOrdinal(int ordinal) {
+        return FIELDS[ordinal];
+    }
 
-        private boolean isDynamicPvt() {
-            if (!dynamicInitialized) {
-                isDynamic = isDynamic();
-                dynamicInitialized = true;
-            }
-            return isDynamic;
-        }
+    /**
+     * Computes the offset of the field without consulting the cache of the BitReader.
+     */
+    int computeOffset(BitReader bbv) {
+        return offset.applyAsInt(bbv);
     }
 
-    private interface OffsetSupplier extends Function<BitReader, Integer> {
+    /**
+     * Computes the length of the field without consulting the cache of the BitReader.
+     */
+    int computeLength(BitReader bbv) {
+        return length.applyAsInt(bbv);
+    }
+
+    private interface OffsetSupplier extends ToIntFunction<BitReader> {
 
         /**
          * This is used when we don't want a field to support offsets.
@@ -277,7 +300,7 @@ public enum FieldDefs {
         OffsetSupplier NOT_SUPPORTED = new OffsetSupplier() {
 
             @Override
-            public Integer apply(BitReader t) {
+            public int applyAsInt(BitReader t) {
                 throw new UnsupportedOperationException();
             }
 
@@ -294,7 +317,7 @@ public enum FieldDefs {
             return new OffsetSupplier() {
 
                 @Override
-                public Integer apply(BitReader t) {
+                public int applyAsInt(BitReader t) {
                     return offset;
                 }
 
@@ -306,39 +329,36 @@ public enum FieldDefs {
         }
 
         /**
-         * Supplies the offset that's based on the specified field. The offset value is stored to
-         * avoid re-computing.
+         * Supplies the offset that's based on the specified field.
          */
         static OffsetSupplier from(final FieldDefs thisEnum) {
-            return new MemoizingFunction() {
+            return new OffsetSupplier() {
                 @Override
                 public boolean isDynamic() {
                     return thisEnum.isDynamic();
                 }
 
                 @Override
-                public Integer doCompute(BitReader t) {
-                    return thisEnum.getLength(t) + thisEnum.getOffset(t);
+                public int applyAsInt(BitReader t) {
+                    return thisEnum.getEnd(t);
                 }
             };
         }
 
         /**
-         * Supplies the offset that's based on the the fields previous field. The offset value is
-         * stored to avoid re-computing.
+         * Supplies the offset that's based on the the fields previous field.
          */
         static OffsetSupplier fromPrevious(final FieldDefs thisEnum) {
-            return new MemoizingFunction() {
+            return new OffsetSupplier() {
 
                 @Override
                 public boolean isDynamic() {
-                    return FieldDefs.values()[thisEnum.ordinal() - 1].isDynamic();
+                    return thisEnum.previous().isDynamic();
                 }
 
                 @Override
-                public Integer doCompute(BitReader t) {
-                    FieldDefs prevEnum = FieldDefs.values()[thisEnum.ordinal() - 1];
-                    return prevEnum.getLength(t) + prevEnum.getOffset(t);
+                public int applyAsInt(BitReader t) {
+                    return thisEnum.previous().getEnd(t);
                 }
             };
         }
@@ -346,7 +366,7 @@ public enum FieldDefs {
         boolean isDynamic();
     }
 
-    private interface LengthSupplier extends Function<BitReader, Integer> {
+    private interface LengthSupplier extends ToIntFunction<BitReader> {
 
         /**
          * A constant length for static fields.
@@ -355,7 +375,7 @@ public enum FieldDefs {
             return new LengthSupplier() {
 
                 @Override
-                public Integer apply(BitReader t) {
+                public int applyAsInt(BitReader t) {
                     return length;
                 }
 
@@ -386,10 +406,24 @@ public enum FieldDefs {
             return cptr - numPubRestrictionsOffset;
         }
 
+        public static int[] entryOffsets(BitReader t, int numPubRestrictionsOffset) {
+            int cptr = numPubRestrictionsOffset;
+            int[] offsets = new int[t.readBits12(numPubRestrictionsOffset)];
+            cptr += CORE_NUM_PUB_RESTRICTION.getLength(t);
+
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = cptr;
+                cptr += (PURPOSE_ID.getLength(t) + RESTRICTION_TYPE.getLength(t));
+                cptr += BitRangeFieldUtils.calculateRangeLength(t, cptr);
+            }
+
+            return offsets;
+        }
+
         public static LengthSupplier lengthSupplier(FieldDefs numPubRestrictionsOffset) {
             return new LengthSupplier() {
                 @Override
-                public Integer apply(BitReader t) {
+                public int applyAsInt(BitReader t) {
                     return calculateBitRangelength(t, numPubRestrictionsOffset.getOffset(t));
                 }
 
@@ -435,7 +469,7 @@ public enum FieldDefs {
         public static LengthSupplier lengthSupplier(FieldDefs isRangeEncoding, FieldDefs maxVendorId) {
             return new LengthSupplier() {
                 @Override
-                public Integer apply(BitReader t) {
+                public int applyAsInt(BitReader t) {
                     return calculateBitRangeLength(t, isRangeEncoding.getOffset(t), maxVendorId.getOffset(t));
                 }
 
@@ -449,7 +483,7 @@ public enum FieldDefs {
         public static LengthSupplier lengthSupplierV1() {
             return new LengthSupplier() {
                 @Override
-                public Integer apply(BitReader t) {
+                public int applyAsInt(BitReader t) {
                     int isRangeEncodingOffset = FieldDefs.V1_VENDOR_IS_RANGE_ENCODING.getOffset(t);
                     if (!t.readBits1(isRangeEncodingOffset)) {
                         return calculateBitLength(t, FieldDefs.V1_VENDOR_MAX_VENDOR_ID.getOffset(t));
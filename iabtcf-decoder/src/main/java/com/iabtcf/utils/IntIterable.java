@@ -1,10 +1,13 @@
 package com.iabtcf.utils;
 
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
@@ -51,9 +54,85 @@ public abstract class IntIterable implements Iterable<Integer> {
      * Returns a stream representation of the IntIterable.
      */
     public IntStream toStream() {
-        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    /**
+     * Returns a spliterator over the values. Implementations should override this to report the
+     * size and to support splitting.
+     */
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return Spliterators.spliteratorUnknownSize(
                 intIterator(),
-                Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL), false);
+                Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+    /**
+     * Performs the action for each value without boxing.
+     */
+    public void forEachInt(IntConsumer action) {
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            action.accept(i.nextInt());
+        }
+    }
+
+    /**
+     * Returns the values in iteration order.
+     */
+    public int[] toIntArray() {
+        int[] rv = new int[16];
+        int n = 0;
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            if (n == rv.length) {
+                rv = Arrays.copyOf(rv, n * 2);
+            }
+            rv[n++] = i.nextInt();
+        }
+        return Arrays.copyOf(rv, n);
+    }
+
+    /**
+     * Returns the number of values.
+     */
+    public int size() {
+        int n = 0;
+        for (IntIterator i = intIterator(); i.hasNext(); i.nextInt()) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the smallest value or an empty optional if there are no values.
+     */
+    public OptionalInt min() {
+        IntIterator i = intIterator();
+        if (!i.hasNext()) {
+            return OptionalInt.empty();
+        }
+
+        int rv = i.nextInt();
+        while (i.hasNext()) {
+            rv = Math.min(rv, i.nextInt());
+        }
+        return OptionalInt.of(rv);
+    }
+
+    /**
+     * Returns the largest value or an empty optional if there are no values.
+     */
+    public OptionalInt max() {
+        IntIterator i = intIterator();
+        if (!i.hasNext()) {
+            return OptionalInt.empty();
+        }
+
+        int rv = i.nextInt();
+        while (i.hasNext()) {
+            rv = Math.max(rv, i.nextInt());
+        }
+        return OptionalInt.of(rv);
     }
 
     public boolean isEmpty() {
@@ -61,15 +140,114 @@ public abstract class IntIterable implements Iterable<Integer> {
     }
 
     public boolean containsAll(int... source) {
-        return Arrays
-                .stream(source)
-                .allMatch(this::contains);
+        for (int value : source) {
+            if (!contains(value)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public boolean containsAny(int... source) {
-        return Arrays
-                .stream(source)
-                .anyMatch(this::contains);
+        for (int value : source) {
+            if (contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the values that are part of both this and other.
+     */
+    public IntIterable and(IntIterable other) {
+        BitSet bs = new BitSet();
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            int value = i.nextInt();
+            if (other.contains(value)) {
+                bs.set(value);
+            }
+        }
+        return BitSetIntIterable.wrap(bs);
+    }
+
+    /**
+     * Returns the values that are part of this, other or both.
+     */
+    public IntIterable or(IntIterable other) {
+        BitSet bs = new BitSet();
+        forEachInt(bs::set);
+        other.forEachInt(bs::set);
+        return BitSetIntIterable.wrap(bs);
+    }
+
+    /**
+     * Returns the values of this that are not part of other.
+     */
+    public IntIterable andNot(IntIterable other) {
+        BitSet bs = new BitSet();
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            int value = i.nextInt();
+            if (!other.contains(value)) {
+                bs.set(value);
+            }
+        }
+        return BitSetIntIterable.wrap(bs);
+    }
+
+    /**
+     * Returns true if this and other have at least one value in common.
+     */
+    public boolean intersects(IntIterable other) {
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            if (other.contains(i.nextInt())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of values this and other have in common, without creating the
+     * intersection.
+     */
+    public int intersectionCount(IntIterable other) {
+        int n = 0;
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            if (other.contains(i.nextInt())) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Clears the bits of target whose index is not part of this, i.e. target &amp;= this.
+     */
+    public void andInto(BitSet target) {
+        for (int i = target.nextSetBit(0); i >= 0; i = target.nextSetBit(i + 1)) {
+            if (!contains(i)) {
+                target.clear(i);
+            }
+        }
+    }
+
+    /**
+     * Sets the bits of target whose index is part of this, i.e. target |= this.
+     */
+    public void orInto(BitSet target) {
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            target.set(i.nextInt());
+        }
+    }
+
+    /**
+     * Clears the bits of target whose index is part of this, i.e. target &amp;= ~this.
+     */
+    public void andNotInto(BitSet target) {
+        for (IntIterator i = intIterator(); i.hasNext();) {
+            target.clear(i.nextInt());
+        }
     }
 
     public abstract boolean contains(int value);
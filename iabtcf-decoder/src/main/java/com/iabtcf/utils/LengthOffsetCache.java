@@ -20,38 +20,65 @@ package com.iabtcf.utils;
  * #L%
  */
 
-import java.util.EnumMap;
-import java.util.function.Function;
-
+/**
+ * Lays out and caches the lengths and offsets of dynamic fields for a single BitReader. Values are
+ * stored in a primitive array indexed by field ordinal, incremented by one so that zero marks an
+ * absent entry.
+ *
+ * Offsets are computed in a single linear pass: starting at the closest preceding field whose
+ * offset is known, each following offset is the previous offset plus the previous length. The pass
+ * stops at the requested field so that lazily decoded strings never parse more than they access.
+ *
+ * Racing threads compute the same values and int array elements are written atomically, so the
+ * cache can be shared without synchronization.
+ */
 class LengthOffsetCache {
+    private static final int FIELD_COUNT = FieldDefs.values().length;
+
     private final BitReader bbv;
-    private final EnumMap<FieldDefs, Integer> lengthCache = new EnumMap<>(FieldDefs.class);
-    private final EnumMap<FieldDefs, Integer> offsetCache = new EnumMap<>(FieldDefs.class);
+    private final int[] layout = new int[2 * FIELD_COUNT];
 
     public LengthOffsetCache(BitReader bbv) {
         this.bbv = bbv;
     }
 
-    public Integer getLength(FieldDefs field, Function<BitReader, Integer> f) {
-        return memoize(field, lengthCache, f);
+    public int getLength(FieldDefs field) {
+        int index = FIELD_COUNT + field.ordinal();
+        int rv = layout[index];
+        if (rv == 0) {
+            rv = field.computeLength(bbv) + 1;
+            layout[index] = rv;
+        }
+        return rv - 1;
+    }
+
+    public int getOffset(FieldDefs field) {
+        int rv = layout[field.ordinal()];
+        if (rv == 0) {
+            return layoutTo(field);
+        }
+        return rv - 1;
     }
 
-    public Integer getOffset(FieldDefs field, Function<BitReader, Integer> f) {
-        return memoize(field, offsetCache, f);
+    private boolean isOffsetKnown(FieldDefs field) {
+        return field.hasStaticOffset() || layout[field.ordinal()] != 0;
     }
 
-    private Integer memoize(FieldDefs field, EnumMap<FieldDefs, Integer> cache,
-            Function<BitReader, Integer> f) {
-        if (!field.isDynamic()) {
-            return f.apply(bbv);
+    private int layoutTo(FieldDefs field) {
+        int start = field.ordinal();
+        while (FieldDefs.fromOrdinal(start).isOffsetFromPrevious()
+                && !isOffsetKnown(FieldDefs.fromOrdinal(start - 1))) {
+            start--;
         }
 
-        Integer rv = cache.get(field);
-        if (rv == null) {
-            rv = f.apply(bbv);
-            cache.put(field, rv);
+        int offset = FieldDefs.fromOrdinal(start).computeOffset(bbv);
+        layout[start] = offset + 1;
+
+        for (int i = start + 1; i <= field.ordinal(); i++) {
+            offset += FieldDefs.fromOrdinal(i - 1).getLength(bbv);
+            layout[i] = offset + 1;
         }
 
-        return rv;
+        return offset;
     }
 }
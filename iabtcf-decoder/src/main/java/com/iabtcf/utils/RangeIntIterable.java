@@ -0,0 +1,438 @@
+package com.iabtcf.utils;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.StringJoiner;
+import java.util.function.IntConsumer;
+
+/**
+ * An implementation of the IntIterable based on a sorted array of disjoint, inclusive ranges.
+ * Memory scales with the number of ranges rather than the largest value, which suits range
+ * encoded vendor fields that cover a few large ranges.
+ *
+ * Equality has set semantics across RangeIntIterable and BitSetIntIterable, an instance is equal to
+ * a BitSetIntIterable that contains the same values and has the same hash code.
+ */
+public class RangeIntIterable extends IntIterable {
+    /**
+     * Range i is [ranges[2 * i], ranges[2 * i + 1]]. Ranges are sorted, disjoint and not adjacent.
+     */
+    private final int[] ranges;
+    private final int size;
+
+    private RangeIntIterable(int[] ranges) {
+        this.ranges = ranges;
+
+        int n = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            n += ranges[i + 1] - ranges[i] + 1;
+        }
+        this.size = n;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the number of disjoint ranges.
+     */
+    public int rangeCount() {
+        return ranges.length >>> 1;
+    }
+
+    /**
+     * Returns the first value of the i-th range in ascending order.
+     */
+    public int rangeStart(int i) {
+        return ranges[i << 1];
+    }
+
+    /**
+     * Returns the last value, inclusive, of the i-th range in ascending order.
+     */
+    public int rangeEnd(int i) {
+        return ranges[(i << 1) + 1];
+    }
+
+    public BitSet toBitSet() {
+        BitSet bs = new BitSet();
+        for (int i = 0; i < ranges.length; i += 2) {
+            bs.set(ranges[i], ranges[i + 1] + 1);
+        }
+        return bs;
+    }
+
+    @Override
+    public boolean contains(int value) {
+        int lo = 0;
+        int hi = rangeCount() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (value < ranges[mid << 1]) {
+                hi = mid - 1;
+            } else if (value > ranges[(mid << 1) + 1]) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public OptionalInt min() {
+        return ranges.length == 0 ? OptionalInt.empty() : OptionalInt.of(ranges[0]);
+    }
+
+    @Override
+    public OptionalInt max() {
+        return ranges.length == 0 ? OptionalInt.empty() : OptionalInt.of(ranges[ranges.length - 1]);
+    }
+
+    @Override
+    public void forEachInt(IntConsumer action) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int v = ranges[i]; v <= ranges[i + 1]; v++) {
+                action.accept(v);
+            }
+        }
+    }
+
+    @Override
+    public int[] toIntArray() {
+        int[] rv = new int[size];
+        int n = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            for (int v = ranges[i]; v <= ranges[i + 1]; v++) {
+                rv[n++] = v;
+            }
+        }
+        return rv;
+    }
+
+    @Override
+    public void andInto(BitSet target) {
+        int from = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            target.clear(from, ranges[i]);
+            from = ranges[i + 1] + 1;
+        }
+        target.clear(from, Math.max(from, target.length()));
+    }
+
+    @Override
+    public void orInto(BitSet target) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            target.set(ranges[i], ranges[i + 1] + 1);
+        }
+    }
+
+    @Override
+    public void andNotInto(BitSet target) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            target.clear(ranges[i], ranges[i + 1] + 1);
+        }
+    }
+
+    /**
+     * Returns a sized spliterator in ascending order that splits at range boundaries.
+     */
+    @Override
+    public Spliterator.OfInt spliterator() {
+        return new RangeSpliterator(ranges, 0, ranges.length, size);
+    }
+
+    @Override
+    public IntIterator intIterator() {
+        return new IntIterator() {
+            private int range = 0;
+            private int next = ranges.length == 0 ? 0 : ranges[0];
+
+            @Override
+            public boolean hasNext() {
+                return range < ranges.length;
+            }
+
+            @Override
+            public Integer next() {
+                return nextInt();
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int rv = next;
+                if (next == ranges[range + 1]) {
+                    range += 2;
+                    if (range < ranges.length) {
+                        next = ranges[range];
+                    }
+                } else {
+                    next++;
+                }
+                return rv;
+            }
+        };
+    }
+
+    /**
+     * Returns the same hash code as a BitSetIntIterable of the same values.
+     */
+    @Override
+    public int hashCode() {
+        // BitSet#hashCode over the words the ranges cover, without materializing them
+        long h = 1234;
+        int wordIndex = -1;
+        long word = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            int from = ranges[i];
+            int to = ranges[i + 1] + 1;
+            while (from < to) {
+                int w = from >>> 6;
+                if (w != wordIndex) {
+                    h ^= word * (wordIndex + 1);
+                    wordIndex = w;
+                    word = 0;
+                }
+                int end = Math.min(to, (w + 1) << 6);
+                long mask = end - from == Long.SIZE ? -1L : ((1L << (end - from)) - 1) << from;
+                word |= mask;
+                from = end;
+            }
+        }
+        h ^= word * (wordIndex + 1);
+
+        return 31 + (int) ((h >> 32) ^ h);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof RangeIntIterable) {
+            return Arrays.equals(ranges, ((RangeIntIterable) obj).ranges);
+        }
+        if (obj instanceof BitSetIntIterable) {
+            return sameValues(((BitSetIntIterable) obj).bitSet());
+        }
+        return false;
+    }
+
+    private boolean sameValues(BitSet bs) {
+        int from = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (bs.nextSetBit(from) != ranges[i] || bs.nextClearBit(ranges[i]) != ranges[i + 1] + 1) {
+                return false;
+            }
+            from = ranges[i + 1] + 1;
+        }
+        return bs.nextSetBit(from) < 0;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner(", ", "{", "}");
+        forEachInt(v -> sj.add(Integer.toString(v)));
+        return sj.toString();
+    }
+
+    /**
+     * Spliterator over the ranges [fromIndex, toIndex) of a ranges array, starting at value 'next' of
+     * the first one.
+     */
+    private static final class RangeSpliterator implements Spliterator.OfInt {
+        private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED
+                | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+
+        private final int[] ranges;
+        private final int toIndex;
+        private int index;
+        private int next;
+        private int size;
+
+        private RangeSpliterator(int[] ranges, int fromIndex, int toIndex, int size) {
+            this.ranges = ranges;
+            this.toIndex = toIndex;
+            this.index = fromIndex;
+            this.next = fromIndex < toIndex ? ranges[fromIndex] : 0;
+            this.size = size;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (index >= toIndex) {
+                return false;
+            }
+            action.accept(next);
+            if (next == ranges[index + 1]) {
+                index += 2;
+                if (index < toIndex) {
+                    next = ranges[index];
+                }
+            } else {
+                next++;
+            }
+            size--;
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            for (; index < toIndex; index += 2) {
+                for (int v = next, end = ranges[index + 1]; v <= end; v++) {
+                    action.accept(v);
+                }
+                if (index + 2 < toIndex) {
+                    next = ranges[index + 2];
+                }
+            }
+            size = 0;
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int mid = ((index + toIndex) >>> 2) << 1;
+            if (mid <= index) {
+                return null;
+            }
+
+            int prefixSize = ranges[index + 1] - next + 1;
+            for (int i = index + 2; i < mid; i += 2) {
+                prefixSize += ranges[i + 1] - ranges[i] + 1;
+            }
+
+            RangeSpliterator prefix = new RangeSpliterator(ranges, index, mid, prefixSize);
+            prefix.next = next;
+
+            index = mid;
+            next = ranges[mid];
+            size -= prefixSize;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return CHARACTERISTICS;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    public static class Builder {
+        private int[] ranges = new int[8];
+        private int length = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds the values in [start, end], both inclusive. Ranges may be added in any order and may
+         * overlap.
+         *
+         * @throws IllegalArgumentException if start is negative or greater than end
+         */
+        public Builder add(int start, int end) throws IllegalArgumentException {
+            if (start < 0 || start > end) {
+                throw new IllegalArgumentException(String.format("invalid range [%d, %d]", start, end));
+            }
+            if (length == ranges.length) {
+                ranges = Arrays.copyOf(ranges, length * 2);
+            }
+            ranges[length++] = start;
+            ranges[length++] = end;
+            return this;
+        }
+
+        public Builder add(int value) throws IllegalArgumentException {
+            return add(value, value);
+        }
+
+        public Builder clear() {
+            length = 0;
+            return this;
+        }
+
+        public RangeIntIterable build() {
+            int[] sorted = Arrays.copyOf(ranges, length);
+            if (!isSorted(sorted)) {
+                long[] packed = new long[length >>> 1];
+                for (int i = 0; i < packed.length; i++) {
+                    packed[i] = (long) sorted[i << 1] << 32 | sorted[(i << 1) + 1];
+                }
+                Arrays.sort(packed);
+                for (int i = 0; i < packed.length; i++) {
+                    sorted[i << 1] = (int) (packed[i] >>> 32);
+                    sorted[(i << 1) + 1] = (int) packed[i];
+                }
+            }
+
+            // merge overlapping and adjacent ranges
+            int n = 0;
+            for (int i = 0; i < sorted.length; i += 2) {
+                if (n > 0 && sorted[i] <= sorted[n - 1] + 1) {
+                    sorted[n - 1] = Math.max(sorted[n - 1], sorted[i + 1]);
+                } else {
+                    sorted[n++] = sorted[i];
+                    sorted[n++] = sorted[i + 1];
+                }
+            }
+
+            return new RangeIntIterable(n == sorted.length ? sorted : Arrays.copyOf(sorted, n));
+        }
+
+        private static boolean isSorted(int[] ranges) {
+            for (int i = 2; i < ranges.length; i += 2) {
+                if (ranges[i] < ranges[i - 2]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.iabtcf.v2;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.utils.IntIterable;
+
+/**
+ * Publisher restrictions indexed by purpose and restriction type. Looking up the restriction of a
+ * vendor for a purpose takes constant time, independent of the number of restriction entries.
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class PublisherRestrictionIndex {
+    private static final RestrictionType[] TYPES = RestrictionType.values();
+    private static final BitSetIntIterable[] NO_RESTRICTIONS = new BitSetIntIterable[TYPES.length];
+
+    public static final PublisherRestrictionIndex EMPTY =
+            new PublisherRestrictionIndex(new AtomicReferenceArray<>(0), null);
+
+    // per purpose id, the vendor ids indexed by restriction type ordinal, null if empty
+    private final AtomicReferenceArray<BitSetIntIterable[]> purposes;
+
+    // loads the restrictions of a purpose that isn't indexed yet, null if every purpose is indexed
+    private final IntFunction<List<PublisherRestriction>> loader;
+
+    private PublisherRestrictionIndex(AtomicReferenceArray<BitSetIntIterable[]> purposes,
+            IntFunction<List<PublisherRestriction>> loader) {
+        this.purposes = purposes;
+        this.loader = loader;
+    }
+
+    /**
+     * Indexes the restrictions. Entries with the same purpose and restriction type are merged.
+     *
+     * @throws IllegalArgumentException if a purpose id is negative
+     */
+    public static PublisherRestrictionIndex of(List<PublisherRestriction> restrictions) {
+        if (restrictions.isEmpty()) {
+            return EMPTY;
+        }
+
+        int maxPurposeId = 0;
+        for (int i = 0; i < restrictions.size(); i++) {
+            int purposeId = restrictions.get(i).getPurposeId();
+            if (purposeId < 0) {
+                throw new IllegalArgumentException("invalid purpose id: " + purposeId);
+            }
+            maxPurposeId = Math.max(maxPurposeId, purposeId);
+        }
+
+        BitSet[][] bitSets = new BitSet[maxPurposeId + 1][];
+        for (int i = 0; i < restrictions.size(); i++) {
+            PublisherRestriction pr = restrictions.get(i);
+            bitSets[pr.getPurposeId()] = merge(bitSets[pr.getPurposeId()], pr);
+        }
+
+        AtomicReferenceArray<BitSetIntIterable[]> purposes = new AtomicReferenceArray<>(bitSets.length);
+        for (int i = 0; i < bitSets.length; i++) {
+            purposes.set(i, toRow(bitSets[i]));
+        }
+        return new PublisherRestrictionIndex(purposes, null);
+    }
+
+    /**
+     * Creates an index that loads and indexes the restrictions of a purpose on its first lookup,
+     * so that entries of purposes that are never looked up don't need to be decoded.
+     *
+     * @param maxPurposeId the largest purpose id with restrictions, or -1 if there are none
+     * @param restrictionsByPurpose returns the restrictions of the given purpose id. It may be called
+     *        more than once for the same purpose id by concurrent lookups.
+     */
+    public static PublisherRestrictionIndex lazy(int maxPurposeId,
+            IntFunction<List<PublisherRestriction>> restrictionsByPurpose) {
+        if (maxPurposeId < 0) {
+            return EMPTY;
+        }
+        return new PublisherRestrictionIndex(new AtomicReferenceArray<>(maxPurposeId + 1), restrictionsByPurpose);
+    }
+
+    private static BitSet[] merge(BitSet[] row, PublisherRestriction pr) {
+        if (row == null) {
+            row = new BitSet[TYPES.length];
+        }
+        int ordinal = pr.getRestrictionType().ordinal();
+        if (row[ordinal] == null) {
+            row[ordinal] = new BitSet();
+        }
+        pr.getVendorIds().orInto(row[ordinal]);
+        return row;
+    }
+
+    private static BitSetIntIterable[] toRow(BitSet[] bitSets) {
+        if (bitSets == null) {
+            return NO_RESTRICTIONS;
+        }
+
+        BitSetIntIterable[] row = new BitSetIntIterable[bitSets.length];
+        for (int i = 0; i < bitSets.length; i++) {
+            if (bitSets[i] != null) {
+                row[i] = BitSetIntIterable.from(bitSets[i]);
+            }
+        }
+        return row;
+    }
+
+    private BitSetIntIterable[] row(int purposeId) {
+        if (purposeId < 0 || purposeId >= purposes.length()) {
+            return NO_RESTRICTIONS;
+        }
+
+        BitSetIntIterable[] rv = purposes.get(purposeId);
+        if (rv == null) {
+            BitSet[] bitSets = null;
+            List<PublisherRestriction> restrictions = loader.apply(purposeId);
+            for (int i = 0; i < restrictions.size(); i++) {
+                bitSets = merge(bitSets, restrictions.get(i));
+            }
+            rv = toRow(bitSets);
+            purposes.set(purposeId, rv);
+        }
+        return rv;
+    }
+
+    /**
+     * Returns the restriction of the vendor for the purpose or null if there is none. Should a vendor
+     * be listed under more than one restriction type for the same purpose, the first one in the order
+     * NOT_ALLOWED, REQUIRE_CONSENT, REQUIRE_LEGITIMATE_INTEREST, UNDEFINED is returned.
+     */
+    public RestrictionType restrictionFor(int purposeId, int vendorId) {
+        BitSetIntIterable[] row = row(purposeId);
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] != null && row[i].contains(vendorId)) {
+                return TYPES[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the vendors that have the given restriction for the purpose.
+     */
+    public IntIterable getVendors(int purposeId, RestrictionType restrictionType) {
+        BitSetIntIterable vendors = row(purposeId)[restrictionType.ordinal()];
+        return vendors == null ? BitSetIntIterable.EMPTY : vendors;
+    }
+
+    /**
+     * Returns true if there are no restriction entries.
+     */
+    public boolean isEmpty() {
+        return purposes.length() == 0;
+    }
+}
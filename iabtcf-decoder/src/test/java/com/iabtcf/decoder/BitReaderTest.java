@@ -592,6 +592,31 @@ public class BitReaderTest {
         assertFalse(bs.get(11));
     }
 
+    @Test
+    public void testBitsetMatchesReadBits1() {
+        byte[] bytes = new byte[48];
+        r.nextBytes(bytes);
+        BitReader bv = new BitReader(bytes);
+
+        for (int offset = 0; offset < 16; offset++) {
+            for (int length = 0; length <= bytes.length * 8 - offset; length += 13) {
+                for (int fromIndex : new int[] {0, 1, 63, 64, 65}) {
+                    BitSet expected = new BitSet();
+                    for (int i = 0; i < length; i++) {
+                        expected.set(fromIndex + i, bv.readBits1(offset + i));
+                    }
+                    assertEquals(expected, bv.readBitSet(offset, length, fromIndex));
+                }
+            }
+        }
+    }
+
+    @Test(expected = ByteParseException.class)
+    public void testBitsetOutOfBounds() {
+        BitReader bv = new BitReader(new byte[] {(byte) 0xFF, (byte) 0xFF});
+        bv.readBitSet(1, 16);
+    }
+
     /**
      * Test reading 36 bits with 5 and 6 bytes.
      */
@@ -705,6 +730,52 @@ public class BitReaderTest {
         return bytes;
     }
 
+    @Test
+    public void testCharSequenceMatchesByteArray() {
+        for (int n = 0; n < 64; n++) {
+            byte[] bytes = new byte[n];
+            r.nextBytes(bytes);
+            String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+            String padded = Base64.getUrlEncoder().encodeToString(bytes);
+
+            BitReader expected = new BitReader(bytes);
+            BitReader unpadded = new BitReader(encoded);
+            BitReader withPadding = new BitReader(padded);
+            BitReader embedded = new BitReader("xx." + encoded + ".yy", 3, 3 + encoded.length());
+
+            for (int i = 0; i + 36 <= n * 8; i++) {
+                assertEquals(expected.readBits36(i), unpadded.readBits36(i));
+                assertEquals(expected.readBits36(i), withPadding.readBits36(i));
+                assertEquals(expected.readBits36(i), embedded.readBits36(i));
+            }
+            for (int i = 0; i < n * 8; i++) {
+                assertEquals(expected.readBits1(i), embedded.readBits1(i));
+            }
+        }
+    }
+
+    @Test(expected = ByteParseException.class)
+    public void testCharSequenceReadBeyondEnd() {
+        // "AAAA.AAAA" only exposes the 3 bytes of the first segment
+        BitReader bv = new BitReader("AAAA.AAAA", 0, 4);
+        bv.readBits16(16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCharSequenceIllegalCharacter() {
+        new BitReader("AA+A");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCharSequenceIllegalPadding() {
+        new BitReader("AAA==");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCharSequenceDanglingCharacter() {
+        new BitReader("AAAAA");
+    }
+
     /**
      * performs a right shift operation on the entire byte array.
      */
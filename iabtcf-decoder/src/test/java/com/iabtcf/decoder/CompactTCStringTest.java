@@ -0,0 +1,168 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.iabtcf.v2.PublisherRestriction;
+import com.iabtcf.v2.PublisherRestrictionIndex;
+import com.iabtcf.v2.RestrictionType;
+
+public class CompactTCStringTest {
+    private static final String[] CONSENTS = {
+        "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA",
+        "COv__-wOv__-wC2AAAENAPCgAAAAAAAAAAAAA_wAQA_gEBABAEAAAA",
+        "COwBOpCOwBOpCLqAAAENAPCAAAAAAAAAAAAAFfwAYFfAV-BVkAGBVYFWAAA",
+        "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA"
+                + ".IBAgAAAgAIAwgAgAAAAEAAAACA.QAagAQAgAIAwgA.cAAAAAAAITg=",
+        "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA.IFoEUQQgAIQwgIwQABAEAAAAOIAACAIAAAAQAIAgEAACEAAAAAgAQBAAAAAA"
+                + "AGBAAgAAAAAAAFAAECAAAgAAQARAEQAAAAAJAAIAAgAAAYQEAAAQmAgBC3ZAYzUw"
+    };
+
+    private static void assertSameFields(TCString expected, TCString actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getCreated(), actual.getCreated());
+        assertEquals(expected.getLastUpdated(), actual.getLastUpdated());
+        assertEquals(expected.getCmpId(), actual.getCmpId());
+        assertEquals(expected.getCmpVersion(), actual.getCmpVersion());
+        assertEquals(expected.getConsentScreen(), actual.getConsentScreen());
+        assertEquals(expected.getConsentLanguage(), actual.getConsentLanguage());
+        assertEquals(expected.getVendorListVersion(), actual.getVendorListVersion());
+        assertEquals(expected.getPurposesConsent().toSet(), actual.getPurposesConsent().toSet());
+        assertEquals(expected.getVendorConsent().toSet(), actual.getVendorConsent().toSet());
+        assertEquals(expected.getVendorConsent().size(), actual.getVendorConsent().size());
+        assertEquals(expected.getTcfPolicyVersion(), actual.getTcfPolicyVersion());
+        assertEquals(expected.isServiceSpecific(), actual.isServiceSpecific());
+        assertEquals(expected.getUseNonStandardStacks(), actual.getUseNonStandardStacks());
+        assertEquals(expected.getSpecialFeatureOptIns().toSet(), actual.getSpecialFeatureOptIns().toSet());
+        assertEquals(expected.getPurposesLITransparency().toSet(), actual.getPurposesLITransparency().toSet());
+        assertEquals(expected.getPurposeOneTreatment(), actual.getPurposeOneTreatment());
+        assertEquals(expected.getPublisherCC(), actual.getPublisherCC());
+        assertEquals(expected.getVendorLegitimateInterest().toSet(), actual.getVendorLegitimateInterest().toSet());
+        assertEquals(expected.getDisclosedVendors().toSet(), actual.getDisclosedVendors().toSet());
+        assertEquals(expected.getAllowedVendors().toSet(), actual.getAllowedVendors().toSet());
+        assertEquals(expected.getPubPurposesConsent().toSet(), actual.getPubPurposesConsent().toSet());
+        assertEquals(expected.getPubPurposesLITransparency().toSet(), actual.getPubPurposesLITransparency().toSet());
+        assertEquals(expected.getCustomPurposesConsent().toSet(), actual.getCustomPurposesConsent().toSet());
+        assertEquals(expected.getCustomPurposesLITransparency().toSet(),
+                actual.getCustomPurposesLITransparency().toSet());
+
+        List<PublisherRestriction> expectedRestrictions = expected.getPublisherRestrictions();
+        List<PublisherRestriction> actualRestrictions = actual.getPublisherRestrictions();
+        assertEquals(expectedRestrictions.size(), actualRestrictions.size());
+        for (int i = 0; i < expectedRestrictions.size(); i++) {
+            PublisherRestriction e = expectedRestrictions.get(i);
+            PublisherRestriction a = actualRestrictions.get(i);
+            assertEquals(e.getPurposeId(), a.getPurposeId());
+            assertEquals(e.getRestrictionType(), a.getRestrictionType());
+            assertEquals(e.getVendorIds().toSet(), a.getVendorIds().toSet());
+        }
+
+        for (int i = -1; i <= 1000; i++) {
+            assertEquals(expected.hasVendorConsent(i), actual.hasVendorConsent(i));
+            assertEquals(expected.hasVendorLegitimateInterest(i), actual.hasVendorLegitimateInterest(i));
+            assertEquals(expected.getVendorConsent().contains(i), actual.getVendorConsent().contains(i));
+        }
+    }
+
+    @Test
+    public void testMatchesDecodedV2() {
+        for (String consent : CONSENTS) {
+            TCString tcString = TCString.decode(consent);
+            assertSameFields(tcString, CompactTCString.of(tcString));
+        }
+    }
+
+    @Test
+    public void testPublisherRestrictions() {
+        String bitString = "0000100011101011100"
+                + "1000000000000001010"
+                + "0000001110101110010"
+                + "0000000000000101000"
+                + "0000110011111000000"
+                + "0000000000000000100"
+                + "0011010000000011110"
+                + "0001000000000000000"
+                + "0000000000000000000"
+                + "0000000000000000000"
+                + "0000000000000000000"
+                + "0000000000000000000"
+                + "0000000000000000000"
+                + "000000000010" // NumPubRestrictions
+                + "000001" + "01" // purpose 1, require consent
+                + "000000000010" // two entries
+                + "0" + "0000000000000011" // vendor 3
+                + "1" + "0000000001000000" + "0000000001000010" // vendors 64 - 66
+                + "000010" + "00" // purpose 2, not allowed
+                + "000000000000"
+                + "0";
+
+        TCString tcString = TCString.decode(TCStringV2Test.base64FromBitString(bitString));
+        CompactTCString compact = CompactTCString.of(tcString);
+        assertEquals(2, compact.getPublisherRestrictions().size());
+        assertSameFields(tcString, compact);
+
+        PublisherRestrictionIndex index = compact.getPublisherRestrictionIndex();
+        assertSame(index, compact.getPublisherRestrictionIndex());
+        assertEquals(RestrictionType.REQUIRE_CONSENT, index.restrictionFor(1, 65));
+        assertNull(index.restrictionFor(1, 4));
+    }
+
+    @Test
+    public void testMatchesDecodedV1() {
+        TCString tcString = TCString.decode("BObdrPUOevsguAfDqFENCNAAAAAmeAAA");
+        CompactTCString compact = CompactTCString.of(tcString);
+
+        assertEquals(tcString.getVersion(), compact.getVersion());
+        assertEquals(tcString.getCreated(), compact.getCreated());
+        assertEquals(tcString.getLastUpdated(), compact.getLastUpdated());
+        assertEquals(tcString.getCmpId(), compact.getCmpId());
+        assertEquals(tcString.getConsentLanguage(), compact.getConsentLanguage());
+        assertEquals(tcString.getDefaultVendorConsent(), compact.getDefaultVendorConsent());
+        assertEquals(tcString.getPurposesConsent().toSet(), compact.getPurposesConsent().toSet());
+        assertEquals(tcString.getVendorConsent().toSet(), compact.getVendorConsent().toSet());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testV1UnsupportedField() {
+        CompactTCString.of(TCString.decode("BObdrPUOevsguAfDqFENCNAAAAAmeAAA")).getPublisherCC();
+    }
+
+    @Test
+    public void testEquality() {
+        CompactTCString compact = CompactTCString.of(TCString.decode(CONSENTS[0]));
+
+        assertSame(compact, CompactTCString.of(compact));
+        assertEquals(compact, CompactTCString.of(TCString.decode(CONSENTS[0], DecoderOption.LAZY)));
+        assertEquals(compact.hashCode(), CompactTCString.of(TCString.decode(CONSENTS[0])).hashCode());
+        assertEquals(compact.getVendorConsent(), CompactTCString.of(TCString.decode(CONSENTS[0])).getVendorConsent());
+        assertNotEquals(compact, CompactTCString.of(TCString.decode(CONSENTS[1])));
+        assertFalse(compact.equals(TCString.decode(CONSENTS[0])));
+    }
+}
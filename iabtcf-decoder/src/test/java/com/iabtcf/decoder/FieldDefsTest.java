@@ -114,4 +114,36 @@ public class FieldDefsTest {
         assertEquals(12 + (17 * (1 + 16)) + (2 * (1 + 16 + 16)),
                 FieldDefs.V1_VENDOR_BITRANGE_FIELD.getLength(bitVector));
     }
+
+    @Test
+    public void testCoreLayoutIsIndependentOfAccessOrder() {
+        String[] tcStrings = {
+                "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA",
+                "COwBOpCOwBOpCLqAAAENAPCAAAAAAAAAAAAAFfwAYFfAV-BVkAGBVYFWAAA",
+                "COv__-wOv__-wC2AAAENAPCgAAAAAAAAAAAAA_wAQA_gEBABAEAAAA"};
+        FieldDefs[] core = {
+                FieldDefs.CORE_VENDOR_MAX_VENDOR_ID, FieldDefs.CORE_VENDOR_IS_RANGE_ENCODING,
+                FieldDefs.CORE_VENDOR_BITRANGE_FIELD, FieldDefs.CORE_VENDOR_LI_MAX_VENDOR_ID,
+                FieldDefs.CORE_VENDOR_LI_IS_RANGE_ENCODING, FieldDefs.CORE_VENDOR_LI_BITRANGE_FIELD,
+                FieldDefs.CORE_NUM_PUB_RESTRICTION, FieldDefs.CORE_PUB_RESTRICTION_ENTRY};
+
+        for (String tcString : tcStrings) {
+            BitReader forward = new BitReader(tcString);
+            int[] offsets = new int[core.length];
+            int[] lengths = new int[core.length];
+            for (int i = 0; i < core.length; i++) {
+                offsets[i] = core[i].getOffset(forward);
+                lengths[i] = core[i].getLength(forward);
+                if (i > 0) {
+                    assertEquals(offsets[i - 1] + lengths[i - 1], offsets[i]);
+                }
+            }
+
+            BitReader backward = new BitReader(tcString);
+            for (int i = core.length - 1; i >= 0; i--) {
+                assertEquals(offsets[i], core[i].getOffset(backward));
+                assertEquals(lengths[i], core[i].getLength(backward));
+            }
+        }
+    }
 }
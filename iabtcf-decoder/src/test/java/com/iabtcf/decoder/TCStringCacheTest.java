@@ -0,0 +1,147 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.iabtcf.exceptions.ByteParseException;
+
+public class TCStringCacheTest {
+    private static final String CONSENT = "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA";
+    private static final String OTHER_CONSENT = "COwxsONOwxsONKpAAAENAdCAAMAAAAAAAAAAAAAAAAAA";
+
+    @Test
+    public void testHitAndMiss() {
+        TCStringCache cache = TCStringCache.newBuilder().build();
+
+        TCString tcString = cache.decode(CONSENT);
+        assertEquals(TCString.decode(CONSENT), tcString);
+        assertSame(tcString, cache.decode(CONSENT));
+        assertSame(tcString, cache.getIfPresent(CONSENT));
+        assertNull(cache.getIfPresent(OTHER_CONSENT));
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testMaximumSize() {
+        TCStringCache cache = TCStringCache.newBuilder().maximumSize(1).build();
+
+        TCString tcString = cache.decode(CONSENT);
+        cache.decode(OTHER_CONSENT);
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertNotSame(tcString, cache.decode(CONSENT));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        TCStringCache cache = TCStringCache.newBuilder().maximumSize(1).build();
+        for (int i = 0; i < 100; i++) {
+            cache.decode(i % 2 == 0 ? CONSENT : OTHER_CONSENT);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(99, cache.evictionCount());
+        assertEquals(100, cache.missCount());
+    }
+
+    @Test
+    public void testExpireAfterWrite() {
+        AtomicLong time = new AtomicLong();
+        TCStringCache cache = TCStringCache.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(10))
+            .ticker(time::get)
+            .build();
+
+        TCString tcString = cache.decode(CONSENT);
+        time.addAndGet(Duration.ofSeconds(9).toNanos());
+        assertSame(tcString, cache.decode(CONSENT));
+
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertNull(cache.getIfPresent(CONSENT));
+        assertNotSame(tcString, cache.decode(CONSENT));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void testExpireAfterWriteSaturates() {
+        AtomicLong time = new AtomicLong();
+        TCStringCache cache = TCStringCache.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(Long.MAX_VALUE))
+            .ticker(time::get)
+            .build();
+
+        TCString tcString = cache.decode(CONSENT);
+        time.addAndGet(Duration.ofDays(365 * 100).toNanos());
+        assertSame(tcString, cache.decode(CONSENT));
+        assertEquals(0, cache.evictionCount());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        TCStringCache cache = TCStringCache.newBuilder().build();
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.decode("CA==");
+            } catch (ByteParseException e) {
+                // expected
+            }
+        }
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    public void testLazyOption() {
+        TCStringCache cache = TCStringCache.newBuilder().options(DecoderOption.LAZY).build();
+        TCString tcString = cache.decode("CA==");
+        assertSame(tcString, cache.decode("CA=="));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        TCStringCache cache = TCStringCache.newBuilder().build();
+        cache.decode(CONSENT);
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaximumSize() {
+        TCStringCache.newBuilder().maximumSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidExpireAfterWrite() {
+        TCStringCache.newBuilder().expireAfterWrite(Duration.ZERO);
+    }
+}
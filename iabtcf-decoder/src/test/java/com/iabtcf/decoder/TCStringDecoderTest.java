@@ -19,9 +19,18 @@ package com.iabtcf.decoder;
  * limitations under the License.
  * #L%
  */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 
@@ -70,4 +79,102 @@ public class TCStringDecoderTest {
     public void testLazyFailure() {
         TCString.decode("CA==", DecoderOption.LAZY).getCmpId();
     }
+
+    @Test
+    public void testTrailingSeparatorsAreIgnored() {
+        String tcString = "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA.IFoEUQQgAIQwgIwQABAEAAAAOIAACAIAAAAQAIAgEAACEAAAAAgAQBAAAAAA"
+                + "AGBAAgAAAAAAAFAAECAAAgAAQARAEQAAAAAJAAIAAgAAAYQEAAAQmAgBC3ZAYzUw";
+        assertEquals(TCStringDecoder.decode(tcString), TCStringDecoder.decode(tcString + ".."));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalCharacter() {
+        TCStringDecoder.decode("COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAA+");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalCharacterInSegment() {
+        TCStringDecoder.decode("COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA.IFoE/QQg");
+    }
+
+    @Test
+    public void testDecodeAll() {
+        String valid = "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA";
+        String unsupportedVersion = Base64.getUrlEncoder().encodeToString(new byte[] {13});
+        List<String> consentStrings = Arrays.asList(valid, "CA==", "+", unsupportedVersion);
+
+        List<DecodeResult> results = TCString.decodeAll(consentStrings);
+        assertEquals(4, results.size());
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(TCString.decode(valid), results.get(0).get());
+        assertNull(results.get(0).getError());
+
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError() instanceof ByteParseException);
+        assertNull(results.get(1).getTCString());
+        assertTrue(results.get(2).getError() instanceof IllegalArgumentException);
+        assertTrue(results.get(3).getError() instanceof UnsupportedVersionException);
+
+        for (int i = 0; i < consentStrings.size(); i++) {
+            assertEquals(consentStrings.get(i), results.get(i).getConsentString());
+        }
+    }
+
+    @Test(expected = ByteParseException.class)
+    public void testDecodeResultRethrows() {
+        TCString.decodeAll(Arrays.asList("CA==")).get(0).get();
+    }
+
+    @Test
+    public void testDecodeAllParallel() {
+        List<String> consentStrings = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            consentStrings.add(i % 3 == 0 ? "CA==" : "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA");
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<DecodeResult> results = TCString.decodeAll(consentStrings, pool);
+            assertEquals(consentStrings.size(), results.size());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 3 != 0, results.get(i).isSuccess());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(666, TCString.decodeAll(consentStrings.parallelStream())
+            .filter(DecodeResult::isSuccess)
+            .collect(Collectors.toList())
+            .size());
+    }
+
+    @Test
+    public void testDecodeCharSequence() {
+        String consent = "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA"
+                + ".IBAgAAAgAIAwgAgAAAAEAAAACA.QAagAQAgAIAwgA.cAAAAAAAITg=";
+        StringBuilder sb = new StringBuilder("x").append(consent).append("x");
+
+        assertEquals(TCString.decode(consent), TCString.decode(sb.subSequence(1, sb.length() - 1)));
+    }
+
+    @Test
+    public void testCoreOnly() {
+        String consent = "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA"
+                + ".IBAgAAAgAIAwgAgAAAAEAAAACA.QAagAQAgAIAwgA.cAAAAAAAITg=";
+
+        assertEquals(TCString.decode(consent), TCString.decode(consent, DecoderOption.CORE_ONLY));
+        assertEquals(TCString.decode(consent),
+                TCString.decode(consent, DecoderOption.CORE_ONLY, DecoderOption.LAZY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCoreOnlyDefersOutOfBandErrors() {
+        String core = "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA";
+
+        TCString tcString = TCString.decode(core + ".IFoE/QQg", DecoderOption.CORE_ONLY);
+        assertEquals(TCString.decode(core).getVendorConsent(), tcString.getVendorConsent());
+        tcString.getDisclosedVendors();
+    }
 }
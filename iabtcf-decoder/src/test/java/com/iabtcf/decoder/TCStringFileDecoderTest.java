@@ -0,0 +1,116 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.iabtcf.exceptions.TCStringDecodeException;
+
+public class TCStringFileDecoderTest {
+    private static final String CONSENT = "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA";
+    private static final String OTHER_CONSENT =
+            "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA"
+                    + ".IBAgAAAgAIAwgAgAAAAEAAAACA.QAagAQAgAIAwgA.cAAAAAAAITg=";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class CollectingSink implements TCStringFileDecoder.Sink {
+        private final Map<Long, TCString> decoded = new ConcurrentHashMap<>();
+        private final Map<Long, String> failed = new ConcurrentHashMap<>();
+
+        @Override
+        public void decoded(long offset, TCString tcString) {
+            decoded.put(offset, tcString);
+        }
+
+        @Override
+        public void failed(long offset, CharSequence consentString, RuntimeException error) {
+            assertTrue(error instanceof TCStringDecodeException || error instanceof IllegalArgumentException);
+            failed.put(offset, consentString.toString());
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+        return file;
+    }
+
+    @Test
+    public void testDecodeLines() throws IOException {
+        StringBuilder content = new StringBuilder();
+        Map<Long, String> expected = new ConcurrentHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            String consent = i % 2 == 0 ? CONSENT : OTHER_CONSENT;
+            expected.put((long) content.length(), consent);
+            content.append(consent).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        content.append("\n");
+        long invalidOffset = content.length();
+        content.append("COtybn4PA_zT4KjA*BENAPCIAEBAAECAAIAAAAAAAAAA");
+
+        Path file = write(content.toString());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int chunkSize : new int[] {1, 50, 1 << 20}) {
+            CollectingSink sink = new CollectingSink();
+            long lines = TCStringFileDecoder.newBuilder()
+                .chunkSize(chunkSize)
+                .pool(pool)
+                .build()
+                .decode(file, sink);
+
+            assertEquals(101, lines);
+            assertEquals(expected.keySet(), sink.decoded.keySet());
+            for (Map.Entry<Long, String> e : expected.entrySet()) {
+                assertEquals(TCString.decode(e.getValue()), sink.decoded.get(e.getKey()));
+            }
+            assertEquals(1, sink.failed.size());
+            assertEquals("COtybn4PA_zT4KjA*BENAPCIAEBAAECAAIAAAAAAAAAA", sink.failed.get(invalidOffset));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        CollectingSink sink = new CollectingSink();
+        assertEquals(0, TCStringFileDecoder.newBuilder().build().decode(write(""), sink));
+        assertTrue(sink.decoded.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidChunkSize() {
+        TCStringFileDecoder.newBuilder().chunkSize(0);
+    }
+}
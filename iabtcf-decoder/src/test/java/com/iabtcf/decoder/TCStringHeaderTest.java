@@ -0,0 +1,85 @@
+package com.iabtcf.decoder;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.iabtcf.exceptions.ByteParseException;
+import com.iabtcf.exceptions.UnsupportedVersionException;
+
+public class TCStringHeaderTest {
+
+    private static void assertHeader(TCString expected, TCStringHeader actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getCreated(), actual.getCreated());
+        assertEquals(expected.getLastUpdated(), actual.getLastUpdated());
+        assertEquals(expected.getCmpId(), actual.getCmpId());
+        assertEquals(expected.getCmpVersion(), actual.getCmpVersion());
+        assertEquals(expected.getConsentScreen(), actual.getConsentScreen());
+        assertEquals(expected.getConsentLanguage(), actual.getConsentLanguage());
+        assertEquals(expected.getVendorListVersion(), actual.getVendorListVersion());
+    }
+
+    @Test
+    public void testPeekV2() {
+        String consent = "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA"
+                + ".IBAgAAAgAIAwgAgAAAAEAAAACA.QAagAQAgAIAwgA.cAAAAAAAITg=";
+        TCString tcString = TCString.decode(consent);
+        TCStringHeader header = TCStringHeader.peek(consent);
+
+        assertHeader(tcString, header);
+        assertEquals(tcString.getTcfPolicyVersion(), header.getTcfPolicyVersion());
+        assertEquals(header, TCStringHeader.peek(consent.substring(0, 23)));
+    }
+
+    @Test
+    public void testPeekV1() {
+        String consent = "BObdrPUOevsguAfDqFENCNAAAAAmeAAA";
+        assertHeader(TCString.decode(consent), TCStringHeader.peek(consent));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testV1TcfPolicyVersion() {
+        TCStringHeader.peek("BObdrPUOevsguAfDqFENCNAAAAAmeAAA").getTcfPolicyVersion();
+    }
+
+    @Test(expected = ByteParseException.class)
+    public void testTooShort() {
+        TCStringHeader.peek("COrEAV4OrXx94ACABBEN");
+    }
+
+    @Test(expected = ByteParseException.class)
+    public void testShortCoreFollowedBySegment() {
+        TCStringHeader.peek("COrEAV4OrXx94ACABBEN.IBAgAAAgAIAwgAgAAAAEAAAACA");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCharacter() {
+        TCStringHeader.peek("COrEAV4OrXx94ACA*BENAHCIAD-AAAAAA");
+    }
+
+    @Test(expected = UnsupportedVersionException.class)
+    public void testUnsupportedVersion() {
+        TCStringHeader.peek("DOrEAV4OrXx94ACABBENAHCIAD-AAAAAA");
+    }
+}
@@ -24,19 +24,30 @@ import static com.iabtcf.test.utils.IntIterableMatcher.matchInts;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 
+import com.iabtcf.exceptions.InvalidRangeFieldException;
 import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.utils.RangeIntIterable;
 import com.iabtcf.v2.PublisherRestriction;
+import com.iabtcf.v2.PublisherRestrictionIndex;
 import com.iabtcf.v2.RestrictionType;
 
 public class TCStringV2Test {
@@ -124,6 +135,10 @@ public class TCStringV2Test {
                 "COv__-wOv__-wC2AAAENAPCgAAAAAAAAAAAAA_wAQA_gEBABAEAAAA";
         TCString tcModel = parse(base64CoreString);
         assertThat(tcModel.getVendorLegitimateInterest(), matchInts(128));
+        assertTrue(tcModel.getVendorLegitimateInterest() instanceof RangeIntIterable);
+        assertEquals(BitSetIntIterable.from(128), tcModel.getVendorLegitimateInterest());
+        assertEquals(tcModel.getVendorLegitimateInterest(),
+                TCString.decode(base64CoreString, DecoderOption.LAZY).getVendorLegitimateInterest());
     }
 
     @Test
@@ -178,6 +193,66 @@ public class TCStringV2Test {
         assertEquals(1, actual.get(0).getPurposeId());
         assertEquals(RestrictionType.REQUIRE_CONSENT, actual.get(0).getRestrictionType());
         assertFalse(actual.get(0).getVendorIds().iterator().hasNext());
+
+        PublisherRestrictionIndex index = tcModel.getPublisherRestrictionIndex();
+        assertSame(index, tcModel.getPublisherRestrictionIndex());
+        assertFalse(index.isEmpty());
+        assertNull(index.restrictionFor(1, 1));
+    }
+
+    @Test
+    public void testLazyPublisherRestrictionsByPurpose() {
+        String bitString =
+                "0000100011101011100"
+                        + "1000000000000001010"
+                        + "0000001110101110010"
+                        + "0000000000000101000"
+                        + "0000110011111000000"
+                        + "0000000000000000100"
+                        + "0011010000000011110"
+                        + "0001000000000000000"
+                        + "0000000000000000000"
+                        + "0000000000000000000"
+                        + "0000000000000000000"
+                        + "0000000000000000000"
+                        + "0000000000000000000"
+                        + "000000000010"
+                        + // NumPubRestrictions (2)
+                        "000001"
+                        + // PurposeId
+                        "01"
+                        + // restriction type Require Consent
+                        "000000000001"
+                        + "0"
+                        + "0000000000000011"
+                        + // vendor 3
+                        "000010"
+                        + // PurposeId
+                        "00"
+                        + // restriction type Not Allowed
+                        "000000000001"
+                        + "1"
+                        + "0000000000000101"
+                        + "0000000000000100"; // invalid range 5-4
+
+        TCString tcModel = TCString.decode(base64FromBitString(bitString), DecoderOption.LAZY);
+
+        assertEquals(
+                Arrays.asList(new PublisherRestriction(1, RestrictionType.REQUIRE_CONSENT, BitSetIntIterable.from(3))),
+                tcModel.getPublisherRestrictions(1));
+        assertTrue(tcModel.getPublisherRestrictions(3).isEmpty());
+
+        PublisherRestrictionIndex index = tcModel.getPublisherRestrictionIndex();
+        assertEquals(RestrictionType.REQUIRE_CONSENT, index.restrictionFor(1, 3));
+        assertNull(index.restrictionFor(1, 4));
+        assertNull(index.restrictionFor(3, 3));
+
+        try {
+            index.restrictionFor(2, 3);
+            fail("expected InvalidRangeFieldException");
+        } catch (InvalidRangeFieldException e) {
+            // the entry of purpose 2 is only decoded on lookup
+        }
     }
 
     @Test
@@ -277,4 +352,88 @@ public class TCStringV2Test {
 
         assertNotEquals(tcModel1.hashCode(), tcModel2.hashCode());
     }
+
+    @Test
+    public void testHasVendorBitField() {
+        String consent = "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA";
+        List<Integer> consents = Arrays.asList(23, 37, 47, 48, 53, 65, 98);
+        List<Integer> legitimateInterests = Arrays.asList(37, 47, 48, 53, 65, 98, 129);
+
+        for (TCString tcModel : Arrays.asList(TCString.decode(consent, DecoderOption.LAZY), parse(consent))) {
+            for (int i = -1; i <= 200; i++) {
+                assertEquals(consents.contains(i), tcModel.hasVendorConsent(i));
+                assertEquals(legitimateInterests.contains(i), tcModel.hasVendorLegitimateInterest(i));
+            }
+        }
+    }
+
+    @Test
+    public void testHasVendorRange() {
+        String consent2Range = "COwBOpCOwBOpCLqAAAENAPCAAAAAAAAAAAAAFfwAYFfAV-BVkAGBVYFWAAA";
+        String consent1Range = "COwBOpCOwBOpCLqAAAENAPCAAAAAAAAAAAAAFfwAQFfgUbABAUaAAA";
+
+        TCString tcModel = TCString.decode(consent2Range, DecoderOption.LAZY);
+        assertFalse(tcModel.hasVendorConsent(701));
+        assertTrue(tcModel.hasVendorConsent(702));
+        assertTrue(tcModel.hasVendorConsent(703));
+        assertFalse(tcModel.hasVendorConsent(704));
+        assertFalse(tcModel.hasVendorConsent(0));
+
+        tcModel = TCString.decode(consent1Range, DecoderOption.LAZY);
+        assertFalse(tcModel.hasVendorConsent(702));
+        assertTrue(tcModel.hasVendorConsent(703));
+
+        tcModel = TCString.decode("COv__-wOv__-wC2AAAENAPCgAAAAAAAAAAAAA_wAQA_gEBABAEAAAA", DecoderOption.LAZY);
+        assertFalse(tcModel.hasVendorLegitimateInterest(127));
+        assertTrue(tcModel.hasVendorLegitimateInterest(128));
+        assertFalse(tcModel.hasVendorLegitimateInterest(129));
+    }
+
+    @Test
+    public void testConcurrentLazyAccess() throws Exception {
+        String consent =
+                "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA.IBAgAAAgAIAwgAgAAAAEAAAACA.QAagAQAgAIAwgA.cAAAAAAAITg=";
+        TCString expected = parse(consent);
+
+        int nThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            for (int round = 0; round < 50; round++) {
+                TCString shared = TCString.decode(consent, DecoderOption.LAZY);
+                CyclicBarrier barrier = new CyclicBarrier(nThreads);
+                List<Future<TCString>> futures = new ArrayList<>();
+                for (int i = 0; i < nThreads; i++) {
+                    Callable<TCString> task = () -> {
+                        barrier.await();
+                        shared.hashCode();
+                        return shared;
+                    };
+                    futures.add(executor.submit(task));
+                }
+                for (Future<TCString> future : futures) {
+                    assertEquals(expected, future.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testEagerDecodeMatchesLazy() {
+        List<String> consents = Arrays.asList(
+                "COrEAV4OrXx94ACABBENAHCIAD-AAAAAAACAAxAAAAgAIAwgAgAAAAEAgQAAAAAEAYQAQAAAACAAAABAAA"
+                        + ".IBAgAAAgAIAwgAgAAAAEAAAACA.QAagAQAgAIAwgA.cAAAAAAAITg=",
+                "COwBOpCOwBOpCLqAAAENAPCAAAAAAAAAAAAAFfwAYFfAV-BVkAGBVYFWAAA",
+                "COv__-wOv__-wC2AAAENAPCgAAAAAAAAAAAAA_wAQA_gEBABAEAAAA",
+                "COtybn4PA_zT4KjACBENAPCIAEBAAECAAIAAAAAAAAAA.IFoEUQQgAIQwgIwQABAEAAAAOIAACAIAAAAQAIAgEAACEAAAAAgAQB"
+                        + "AAAAAAAGBAAgAAAAAAAFAAECAAAgAAQARAEQAAAAAJAAIAAgAAAYQEAAAQmAgBC3ZAYzUw");
+
+        for (String consent : consents) {
+            TCString eager = parse(consent);
+            TCString lazy = TCString.decode(consent, DecoderOption.LAZY);
+            assertEquals(lazy, eager);
+            assertEquals(lazy.toString(), eager.toString());
+        }
+    }
 }
@@ -20,16 +20,23 @@ package com.iabtcf.utils;
  * #L%
  */
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalInt;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -268,6 +275,146 @@ public class BitSetIntIterableTest {
         assertEquals(bs.max(), 100);
     }
 
+    @Test
+    public void testBulkOperations() {
+        int[] values = {0, 1, 63, 64, 65, 127, 200, 1000, 1001, 4095};
+        BitSetIntIterable bs = BitSetIntIterable.from(values);
+        IntIterable ii = iterableOf(values);
+
+        for (IntIterable e : Arrays.asList(bs, ii)) {
+            assertEquals(values.length, e.size());
+            assertArrayEquals(values, e.toIntArray());
+            assertEquals(OptionalInt.of(0), e.min());
+            assertEquals(OptionalInt.of(4095), e.max());
+
+            List<Integer> visited = new ArrayList<>();
+            e.forEachInt(visited::add);
+            assertEquals(Arrays.stream(values).boxed().collect(Collectors.toList()), visited);
+        }
+
+        assertEquals(0, BitSetIntIterable.EMPTY.size());
+        assertEquals(0, BitSetIntIterable.EMPTY.toIntArray().length);
+        assertFalse(BitSetIntIterable.EMPTY.min().isPresent());
+        assertFalse(iterableOf().max().isPresent());
+    }
+
+    @Test
+    public void testBuilderView() {
+        BitSetIntIterable.Builder builder = BitSetIntIterable.newBuilder().add(1);
+        BitSetIntIterable view = builder.view();
+        BitSetIntIterable built = builder.build();
+
+        builder.add(7);
+        assertSame(view, builder.view());
+        assertTrue(view.contains(7));
+        assertFalse(built.contains(7));
+
+        builder.clear();
+        assertTrue(view.isEmpty());
+    }
+
+    @Test
+    public void testSpliterator() {
+        BitSetIntIterable.Builder builder = BitSetIntIterable.newBuilder();
+        for (int i = 0; i < 100_000; i += 3) {
+            builder.add(i);
+        }
+        BitSetIntIterable bs = builder.build();
+
+        Spliterator.OfInt spliterator = bs.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED));
+        assertEquals(bs.size(), spliterator.getExactSizeIfKnown());
+
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        assertEquals(bs.size(), prefix.estimateSize() + spliterator.estimateSize());
+
+        assertArrayEquals(bs.toIntArray(), bs.toStream().parallel().toArray());
+        assertEquals(bs.size(), bs.toStream().parallel().count());
+    }
+
+    @Test
+    public void testSetAlgebra() {
+        int[] a = {1, 2, 64, 100, 130, 500};
+        int[] b = {2, 3, 64, 130, 131};
+        BitSetIntIterable bsA = BitSetIntIterable.from(a);
+        BitSetIntIterable bsB = BitSetIntIterable.from(b);
+        RangeIntIterable.Builder rangesB = RangeIntIterable.newBuilder();
+        for (int v : b) {
+            rangesB.add(v);
+        }
+
+        for (IntIterable x : Arrays.asList(bsA, iterableOf(a))) {
+            for (IntIterable y : Arrays.asList(bsB, iterableOf(b), rangesB.build())) {
+                assertArrayEquals(new int[] {2, 64, 130}, x.and(y).toIntArray());
+                assertArrayEquals(new int[] {1, 2, 3, 64, 100, 130, 131, 500}, x.or(y).toIntArray());
+                assertArrayEquals(new int[] {1, 100, 500}, x.andNot(y).toIntArray());
+                assertTrue(x.intersects(y));
+                assertEquals(3, x.intersectionCount(y));
+                assertFalse(x.intersects(BitSetIntIterable.EMPTY));
+                assertEquals(0, x.intersectionCount(iterableOf(3, 131)));
+            }
+        }
+
+        assertArrayEquals(a, bsA.toIntArray());
+        assertArrayEquals(b, bsB.toIntArray());
+    }
+
+    @Test
+    public void testSetAlgebraInto() {
+        int[] a = {1, 2, 3, 64, 100, 130, 131, 500};
+        RangeIntIterable.Builder ranges = RangeIntIterable.newBuilder();
+        for (int v : a) {
+            ranges.add(v);
+        }
+
+        for (IntIterable x : Arrays.asList(BitSetIntIterable.from(a), iterableOf(a), ranges.build())) {
+            BitSet target = BitSet.valueOf(new long[] {0b1101L, 1L, 1L << 5 | 1L << 9});
+            x.andInto(target);
+            assertEquals(BitSet.valueOf(new long[] {0b1100L, 1L}), target);
+
+            target = BitSet.valueOf(new long[] {0b1101L, 1L, 1L << 5 | 1L << 9});
+            x.andNotInto(target);
+            assertEquals(BitSet.valueOf(new long[] {0b0001L, 0L, 1L << 5 | 1L << 9}), target);
+
+            target = new BitSet();
+            target.set(7);
+            x.orInto(target);
+            target.clear(7);
+            assertArrayEquals(a, target.stream().toArray());
+        }
+    }
+
+    private static IntIterable iterableOf(int... values) {
+        return new IntIterable() {
+            @Override
+            public boolean contains(int value) {
+                return Arrays.stream(values).anyMatch(v -> v == value);
+            }
+
+            @Override
+            public IntIterator intIterator() {
+                return new IntIterator() {
+                    private int i = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < values.length;
+                    }
+
+                    @Override
+                    public Integer next() {
+                        return nextInt();
+                    }
+
+                    @Override
+                    public int nextInt() {
+                        return values[i++];
+                    }
+                };
+            }
+        };
+    }
+
     static void assertStreamEquals(Stream<?> s1, IntStream s2) {
         Iterator<?> iter1 = s1.iterator(), iter2 = s2.iterator();
         while (iter1.hasNext() && iter2.hasNext()) {
@@ -0,0 +1,158 @@
+package com.iabtcf.utils;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+import org.junit.Test;
+
+public class RangeIntIterableTest {
+
+    @Test
+    public void testMergesRanges() {
+        RangeIntIterable ri = RangeIntIterable.newBuilder()
+            .add(10, 12)
+            .add(1, 3)
+            .add(4)
+            .add(11, 15)
+            .add(20)
+            .build();
+
+        assertEquals(3, ri.rangeCount());
+        assertEquals(1, ri.rangeStart(0));
+        assertEquals(4, ri.rangeEnd(0));
+        assertEquals(10, ri.rangeStart(1));
+        assertEquals(15, ri.rangeEnd(1));
+        assertArrayEquals(new int[] {1, 2, 3, 4, 10, 11, 12, 13, 14, 15, 20}, ri.toIntArray());
+        assertEquals(11, ri.size());
+        assertEquals(OptionalInt.of(1), ri.min());
+        assertEquals(OptionalInt.of(20), ri.max());
+    }
+
+    @Test
+    public void testContains() {
+        RangeIntIterable ri = RangeIntIterable.newBuilder().add(1, 1200).add(1300).add(2000, 2100).build();
+
+        for (int i = -1; i <= 2200; i++) {
+            boolean expected = (i >= 1 && i <= 1200) || i == 1300 || (i >= 2000 && i <= 2100);
+            assertEquals(expected, ri.contains(i));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        RangeIntIterable ri = RangeIntIterable.newBuilder().build();
+
+        assertTrue(ri.isEmpty());
+        assertFalse(ri.intIterator().hasNext());
+        assertFalse(ri.contains(0));
+        assertEquals(BitSetIntIterable.EMPTY, ri);
+        assertEquals(ri, BitSetIntIterable.EMPTY);
+        assertEquals(BitSetIntIterable.EMPTY.hashCode(), ri.hashCode());
+    }
+
+    @Test
+    public void testEqualsBitSetIntIterable() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            RangeIntIterable.Builder builder = RangeIntIterable.newBuilder();
+            BitSet bs = new BitSet();
+            for (int i = random.nextInt(5); i >= 0; i--) {
+                int start = random.nextInt(1000);
+                int end = start + random.nextInt(200);
+                builder.add(start, end);
+                bs.set(start, end + 1);
+            }
+            RangeIntIterable ri = builder.build();
+            BitSetIntIterable bsi = BitSetIntIterable.from(bs);
+
+            assertEquals(bsi, ri);
+            assertEquals(ri, bsi);
+            assertEquals(bsi.hashCode(), ri.hashCode());
+            assertEquals(bsi.toString(), ri.toString());
+            assertArrayEquals(bsi.toIntArray(), ri.toIntArray());
+            assertArrayEquals(bsi.toIntArray(), ri.toStream().toArray());
+            assertEquals(bs, ri.toBitSet());
+
+            bs.flip(random.nextInt(1200));
+            assertNotEquals(ri, BitSetIntIterable.from(bs));
+            assertNotEquals(BitSetIntIterable.from(bs), ri);
+        }
+    }
+
+    @Test
+    public void testSpliterator() {
+        RangeIntIterable.Builder builder = RangeIntIterable.newBuilder();
+        for (int i = 0; i < 100_000; i += 10) {
+            builder.add(i, i + i % 7);
+        }
+        RangeIntIterable ri = builder.build();
+
+        Spliterator.OfInt spliterator = ri.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED));
+        assertEquals(ri.size(), spliterator.getExactSizeIfKnown());
+
+        int[] first = new int[1];
+        spliterator.tryAdvance((int v) -> first[0] = v);
+        assertEquals(0, first[0]);
+
+        Spliterator.OfInt prefix = spliterator.trySplit();
+        assertEquals(ri.size() - 1, prefix.estimateSize() + spliterator.estimateSize());
+        int[] values = ri.toIntArray();
+        int split = (int) prefix.estimateSize() + 1;
+        assertArrayEquals(Arrays.copyOfRange(values, 1, split),
+                StreamSupport.intStream(prefix, false).toArray());
+        assertArrayEquals(Arrays.copyOfRange(values, split, values.length),
+                StreamSupport.intStream(spliterator, false).toArray());
+
+        assertArrayEquals(values, ri.toStream().parallel().toArray());
+        assertEquals(ri.size(), ri.toStream().parallel().count());
+    }
+
+    @Test
+    public void testSpliteratorSingleRange() {
+        RangeIntIterable ri = RangeIntIterable.newBuilder().add(3, 9).build();
+
+        Spliterator.OfInt spliterator = ri.spliterator();
+        assertNull(spliterator.trySplit());
+        assertEquals(7, spliterator.estimateSize());
+        assertArrayEquals(new int[] {3, 4, 5, 6, 7, 8, 9}, StreamSupport.intStream(spliterator, false).toArray());
+        assertEquals(0, spliterator.estimateSize());
+        assertNull(RangeIntIterable.newBuilder().build().spliterator().trySplit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        RangeIntIterable.newBuilder().add(5, 4);
+    }
+}
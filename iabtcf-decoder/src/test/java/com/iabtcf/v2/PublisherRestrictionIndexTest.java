@@ -0,0 +1,114 @@
+package com.iabtcf.v2;
+
+/*-
+ * #%L
+ * IAB TCF Core Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static com.iabtcf.test.utils.IntIterableMatcher.matchInts;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.iabtcf.utils.BitSetIntIterable;
+
+public class PublisherRestrictionIndexTest {
+    @Test
+    public void testRestrictionFor() {
+        PublisherRestrictionIndex index = PublisherRestrictionIndex.of(Arrays.asList(
+                new PublisherRestriction(1, RestrictionType.NOT_ALLOWED, BitSetIntIterable.from(1, 2)),
+                new PublisherRestriction(2, RestrictionType.REQUIRE_CONSENT, BitSetIntIterable.from(3)),
+                new PublisherRestriction(2, RestrictionType.REQUIRE_LEGITIMATE_INTEREST, BitSetIntIterable.from(4))));
+
+        assertEquals(RestrictionType.NOT_ALLOWED, index.restrictionFor(1, 2));
+        assertEquals(RestrictionType.REQUIRE_CONSENT, index.restrictionFor(2, 3));
+        assertEquals(RestrictionType.REQUIRE_LEGITIMATE_INTEREST, index.restrictionFor(2, 4));
+        assertNull(index.restrictionFor(1, 3));
+        assertNull(index.restrictionFor(3, 1));
+        assertNull(index.restrictionFor(-1, 1));
+        assertFalse(index.isEmpty());
+    }
+
+    @Test
+    public void testMergesEntries() {
+        PublisherRestrictionIndex index = PublisherRestrictionIndex.of(Arrays.asList(
+                new PublisherRestriction(1, RestrictionType.REQUIRE_CONSENT, BitSetIntIterable.from(1, 2)),
+                new PublisherRestriction(1, RestrictionType.REQUIRE_CONSENT, BitSetIntIterable.from(5))));
+
+        assertThat(index.getVendors(1, RestrictionType.REQUIRE_CONSENT), matchInts(1, 2, 5));
+        assertThat(index.getVendors(1, RestrictionType.NOT_ALLOWED), matchInts());
+        assertThat(index.getVendors(7, RestrictionType.REQUIRE_CONSENT), matchInts());
+    }
+
+    @Test
+    public void testPrecedence() {
+        PublisherRestrictionIndex index = PublisherRestrictionIndex.of(Arrays.asList(
+                new PublisherRestriction(1, RestrictionType.REQUIRE_LEGITIMATE_INTEREST, BitSetIntIterable.from(1)),
+                new PublisherRestriction(1, RestrictionType.REQUIRE_CONSENT, BitSetIntIterable.from(1, 2)),
+                new PublisherRestriction(1, RestrictionType.NOT_ALLOWED, BitSetIntIterable.from(2))));
+
+        assertEquals(RestrictionType.REQUIRE_CONSENT, index.restrictionFor(1, 1));
+        assertEquals(RestrictionType.NOT_ALLOWED, index.restrictionFor(1, 2));
+    }
+
+    @Test
+    public void testEmpty() {
+        PublisherRestrictionIndex index = PublisherRestrictionIndex.of(Collections.emptyList());
+        assertSame(PublisherRestrictionIndex.EMPTY, index);
+        assertTrue(index.isEmpty());
+        assertNull(index.restrictionFor(1, 1));
+    }
+
+    @Test
+    public void testLazy() {
+        AtomicInteger loads = new AtomicInteger();
+        PublisherRestrictionIndex index = PublisherRestrictionIndex.lazy(3, purposeId -> {
+            loads.incrementAndGet();
+            return purposeId == 2
+                    ? Collections.singletonList(
+                            new PublisherRestriction(2, RestrictionType.NOT_ALLOWED, BitSetIntIterable.from(7)))
+                    : Collections.emptyList();
+        });
+
+        assertEquals(RestrictionType.NOT_ALLOWED, index.restrictionFor(2, 7));
+        assertThat(index.getVendors(2, RestrictionType.NOT_ALLOWED), matchInts(7));
+        assertNull(index.restrictionFor(1, 7));
+        assertNull(index.restrictionFor(4, 7));
+        assertEquals(2, loads.get());
+        assertFalse(index.isEmpty());
+
+        assertSame(PublisherRestrictionIndex.EMPTY, PublisherRestrictionIndex.lazy(-1, purposeId -> {
+            throw new AssertionError();
+        }));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativePurposeId() {
+        PublisherRestrictionIndex.of(Collections.singletonList(
+                new PublisherRestriction(-1, RestrictionType.NOT_ALLOWED, BitSetIntIterable.from(1))));
+    }
+}
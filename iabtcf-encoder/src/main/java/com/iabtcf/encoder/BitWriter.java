@@ -22,9 +22,7 @@ package com.iabtcf.encoder;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.Base64;
 import java.util.BitSet;
 import java.util.PrimitiveIterator.OfLong;
 
@@ -47,6 +45,10 @@ class BitWriter {
         LONG_MASKS[Long.SIZE] = ~0L;
     }
 
+    private static final char[] BASE64_URL =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int SEXTET = 6;
+
     private final OfLongIterable buffer = new OfLongIterable();
     private int bitsRemaining = Long.SIZE;
     private long pending = 0L;
@@ -69,6 +71,16 @@ class BitWriter {
         this.precision = precision;
     }
 
+    /**
+     * Discards all written bits so that the instance, and its buffer, can be reused.
+     */
+    public void reset() {
+        buffer.clear();
+        bitsRemaining = Long.SIZE;
+        pending = 0L;
+        precision = 0;
+    }
+
     public void write(boolean value) {
         write(value ? 1 : 0, 1);
     }
@@ -83,9 +95,8 @@ class BitWriter {
      */
     public void write(String str) {
         assert Charset.forName("US-ASCII").newEncoder().canEncode(str);
-        byte[] b = str.toUpperCase().getBytes(StandardCharsets.US_ASCII);
-        for (int i = 0; i < b.length; i++) {
-            writeV(b[i] - 'A', FieldDefs.CHAR);
+        for (int i = 0; i < str.length(); i++) {
+            writeV(Character.toUpperCase(str.charAt(i)) - 'A', FieldDefs.CHAR);
         }
     }
 
@@ -125,8 +136,9 @@ class BitWriter {
             throw new IllegalArgumentException("length must be non-negative");
         }
 
-        BitWriter bw = new BitWriter(length);
-        BitSet bs = new BitSet();
+        // fields of up to 64 bits, i.e. every fixed size field, are collected in a single word
+        BitSet bs = length > Long.SIZE ? new BitSet(length) : null;
+        long word = 0L;
         for (IntIterator i = of.intIterator(); i.hasNext();) {
             int nextInt = i.nextInt();
             if (nextInt <= 0) {
@@ -138,12 +150,20 @@ class BitWriter {
                 continue;
             }
 
-            bs.set(nextInt - 1);
+            if (bs == null) {
+                word |= 1L << (length - nextInt);
+            } else {
+                bs.set(nextInt - 1);
+            }
+        }
+
+        if (bs == null) {
+            write(word, length);
+            return;
         }
         for (int i = 0; i < length; i++) {
-            bw.write(bs.get(i));
+            write(bs.get(i));
         }
-        write(bw);
     }
 
     /**
@@ -199,8 +219,8 @@ class BitWriter {
      * Writes bits encoded by the specified BitWriter. Padding bits, if any, are also appended.
      */
     public void write(BitWriter bw) {
-        for (OfLong i = bw.buffer.longIterator(); i.hasNext();) {
-            write(i.nextLong(), Long.SIZE);
+        for (int i = 0; i < bw.buffer.size(); i++) {
+            write(bw.buffer.get(i), Long.SIZE);
         }
         write(bw.pending >>> bw.bitsRemaining, Long.SIZE - bw.bitsRemaining);
 
@@ -256,6 +276,47 @@ class BitWriter {
      * Returns a base64 url encoded representation of the bit array.
      */
     public String toBase64() {
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(this.toByteArray());
+        return appendBase64(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the unpadded base64 url encoded representation of the bit array to 'sb'. The result is
+     * the same as {@link #toBase64()} but the characters are taken directly from the buffered words
+     * instead of going through {@link #toByteArray()}.
+     */
+    public StringBuilder appendBase64(StringBuilder sb) {
+        enforcePrecision();
+
+        // toByteArray pads the pending bits to a whole byte
+        int bits = buffer.size() * Long.SIZE + ((Long.SIZE - bitsRemaining + Byte.SIZE - 1) & -Byte.SIZE);
+        sb.ensureCapacity(sb.length() + base64Length());
+
+        for (int offset = 0; offset < bits; offset += SEXTET) {
+            int index = offset >>> 6;
+            int shift = Long.SIZE - SEXTET - (offset & (Long.SIZE - 1));
+            long sextet = shift >= 0
+                    ? word(index) >>> shift
+                    : word(index) << -shift | word(index + 1) >>> (Long.SIZE + shift);
+            sb.append(BASE64_URL[(int) sextet & ((1 << SEXTET) - 1)]);
+        }
+
+        return sb;
+    }
+
+    /**
+     * Returns the number of characters {@link #appendBase64(StringBuilder)} appends.
+     */
+    public int base64Length() {
+        return (((length() + Byte.SIZE - 1) & -Byte.SIZE) + SEXTET - 1) / SEXTET;
+    }
+
+    /**
+     * Returns the i-th word of the bit array, the pending bits following the buffered words.
+     */
+    private long word(int i) {
+        if (i < buffer.size()) {
+            return buffer.get(i);
+        }
+        return i == buffer.size() ? pending : 0L;
     }
 }
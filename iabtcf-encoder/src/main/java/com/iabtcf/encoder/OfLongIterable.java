@@ -38,6 +38,17 @@ class OfLongIterable {
         array[size++] = value;
     }
 
+    public long get(int index) {
+        return array[index];
+    }
+
+    /**
+     * Removes all values, keeping the allocated capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
     public OfLong longIterator() {
         return new OfLong() {
             int i = 0;
@@ -53,6 +53,7 @@ import static com.iabtcf.utils.FieldDefs.V1_PURPOSES_ALLOW;
 import static com.iabtcf.utils.FieldDefs.V1_VENDOR_LIST_VERSION;
 import static com.iabtcf.utils.FieldDefs.V1_VERSION;
 
+import java.io.IOException;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -60,8 +61,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import com.iabtcf.decoder.TCString;
 import com.iabtcf.encoder.exceptions.ValueOverflowException;
@@ -80,6 +79,27 @@ public interface TCStringEncoder {
      */
     String encode() throws IllegalArgumentException, ValueOverflowException;
 
+    /**
+     * Appends the base64 url encoded iabtcf compliant consent string to 'out'.
+     *
+     * @throws IllegalArgumentException if the version is invalid
+     * @throws ValueOverflowException if an attempt was made to encode a value beyond it's limit.
+     */
+    default StringBuilder encode(StringBuilder out) throws IllegalArgumentException, ValueOverflowException {
+        return out.append(encode());
+    }
+
+    /**
+     * Appends the base64 url encoded iabtcf compliant consent string to 'out'.
+     *
+     * @throws IOException if 'out' throws
+     * @throws IllegalArgumentException if the version is invalid
+     * @throws ValueOverflowException if an attempt was made to encode a value beyond it's limit.
+     */
+    default Appendable encode(Appendable out) throws IOException, IllegalArgumentException, ValueOverflowException {
+        return out.append(encode());
+    }
+
     /**
      * Returns a TCString representation
      *
@@ -89,19 +109,33 @@ public interface TCStringEncoder {
     TCString toTCString() throws IllegalArgumentException, ValueOverflowException;
 
     static class TCStringEncoderV1 implements TCStringEncoder {
-        private final int version;
-        private final Instant created;
-        private final Instant updated;
-        private final int cmpId;
-        private final int cmpVersion;
-        private final int consentScreen;
-        private final String consentLanguage;
-        private final int vendorListVersion;
-        private final IntIterable purposesConsent;
-        private final IntIterable vendorsConsent;
-        private final boolean defaultConsent;
+        private int version;
+        private Instant created;
+        private Instant updated;
+        private int cmpId;
+        private int cmpVersion;
+        private int consentScreen;
+        private String consentLanguage;
+        private int vendorListVersion;
+        private IntIterable purposesConsent;
+        private IntIterable vendorsConsent;
+        private boolean defaultConsent;
+
+        /**
+         * Creates an encoder to be loaded with {@link #load(TCStringEncoder.Builder)}.
+         */
+        TCStringEncoderV1() {
+        }
 
         public TCStringEncoderV1(TCStringEncoder.Builder builder) {
+            load(builder);
+        }
+
+        /**
+         * Replaces the fields of this encoder by the builder's. The builder's sets are referenced, not
+         * copied.
+         */
+        TCStringEncoderV1 load(TCStringEncoder.Builder builder) {
             if (builder.version != 1) {
                 throw new IllegalArgumentException("version must be 1: " + builder.version);
             }
@@ -113,14 +147,32 @@ public interface TCStringEncoder {
             this.consentScreen = builder.consentScreen;
             this.consentLanguage = builder.consentLanguage;
             this.vendorListVersion = builder.vendorListVersion;
-            this.purposesConsent = builder.purposesConsent.build();
-            this.vendorsConsent = builder.vendorConsent.build();
+            this.purposesConsent = builder.purposesConsent.view();
+            this.vendorsConsent = builder.vendorConsent.view();
             this.defaultConsent = builder.defaultConsent;
+            return this;
         }
 
         @Override
         public String encode() {
             BitWriter bitWriter = new BitWriter();
+            write(bitWriter, new VendorFieldEncoder());
+            return bitWriter.appendBase64(new StringBuilder(bitWriter.base64Length())).toString();
+        }
+
+        /**
+         * Appends the encoded string to 'out', using 'bitWriter' and 'vendorEncoder' as scratch space.
+         */
+        StringBuilder encode(StringBuilder out, BitWriter bitWriter, VendorFieldEncoder vendorEncoder) {
+            write(bitWriter, vendorEncoder);
+            return bitWriter.appendBase64(out);
+        }
+
+        /**
+         * Replaces the content of 'bitWriter' by the bits of the encoded string.
+         */
+        private void write(BitWriter bitWriter, VendorFieldEncoder vendorEncoder) {
+            bitWriter.reset();
             bitWriter.write(version, V1_VERSION);
             bitWriter.write(created, V1_CREATED);
             bitWriter.write(updated, V1_LAST_UPDATED);
@@ -131,14 +183,10 @@ public interface TCStringEncoder {
             bitWriter.write(vendorListVersion, V1_VENDOR_LIST_VERSION);
             bitWriter.write(purposesConsent, V1_PURPOSES_ALLOW);
 
-            BitWriter vendorConsentBits = new VendorFieldEncoder()
+            vendorEncoder.reset()
                 .defaultConsent(defaultConsent)
                 .add(vendorsConsent)
-                .buildV1();
-
-            bitWriter.write(vendorConsentBits);
-
-            return bitWriter.toBase64();
+                .buildV1(bitWriter);
         }
 
         @Override
@@ -148,32 +196,45 @@ public interface TCStringEncoder {
     }
 
     static class TCStringEncoderV2 implements TCStringEncoder {
-        private final int version;
-        private final Instant created;
-        private final Instant updated;
-        private final int cmpId;
-        private final int cmpVersion;
-        private final int consentScreen;
-        private final String consentLanguage;
-        private final int vendorListVersion;
-        private final IntIterable purposesConsent;
-        private final IntIterable vendorsConsent;
-        private final int tcfPolicyVersion;
-        private final boolean isServiceSpecific;
-        private final boolean useNonStandardStacks;
-        private final IntIterable specialFeatureOptIns;
-        private final IntIterable purposesLITransparency;
-        private final boolean purposeOneTreatment;
-        private final String publisherCC;
-        private final IntIterable vendorLegitimateInterest;
-        private final IntIterable disclosedVendors;
-        private final IntIterable allowedVendors;
-        private final IntIterable pubPurposesConsent;
-        private final int numberOfCustomPurposes;
-        private final IntIterable customPurposesConsent;
-        private final IntIterable customPurposesLITransparency;
-        private final IntIterable pubPurposesLITransparency;
-        private final List<PublisherRestrictionEntry> publisherRestrictions;
+        // the core segment followed by the out-of-band segments in the order they are encoded
+        private static final SegmentType[] SEGMENT_ORDER = {SegmentType.DEFAULT, SegmentType.DISCLOSED_VENDOR,
+                SegmentType.ALLOWED_VENDOR, SegmentType.PUBLISHER_TC};
+
+        private int version;
+        private Instant created;
+        private Instant updated;
+        private int cmpId;
+        private int cmpVersion;
+        private int consentScreen;
+        private String consentLanguage;
+        private int vendorListVersion;
+        private IntIterable purposesConsent;
+        private IntIterable vendorsConsent;
+        private int tcfPolicyVersion;
+        private boolean isServiceSpecific;
+        private boolean useNonStandardStacks;
+        private IntIterable specialFeatureOptIns;
+        private IntIterable purposesLITransparency;
+        private boolean purposeOneTreatment;
+        private String publisherCC;
+        private IntIterable vendorLegitimateInterest;
+        private IntIterable disclosedVendors;
+        private IntIterable allowedVendors;
+        private IntIterable pubPurposesConsent;
+        private int numberOfCustomPurposes;
+        private IntIterable customPurposesConsent;
+        private IntIterable customPurposesLITransparency;
+        private IntIterable pubPurposesLITransparency;
+        private List<PublisherRestrictionEntry> publisherRestrictions;
+
+        // the builder's updated instant that 'updated' was truncated from
+        private Instant loadedUpdated;
+
+        /**
+         * Creates an encoder to be loaded with {@link #load(TCStringEncoder.Builder)}.
+         */
+        private TCStringEncoderV2() {
+        }
 
         /**
          * @throws IllegalArgumentException if the version is invalid
@@ -181,6 +242,18 @@ public interface TCStringEncoder {
          */
         private TCStringEncoderV2(TCStringEncoder.Builder builder)
                 throws IllegalArgumentException, ValueOverflowException {
+            load(builder);
+        }
+
+        /**
+         * Validates the builder's fields and replaces the fields of this encoder by them. The builder's
+         * sets are referenced, not copied.
+         *
+         * @throws IllegalArgumentException if the version is invalid
+         * @throws ValueOverflowException
+         */
+        private TCStringEncoderV2 load(TCStringEncoder.Builder builder)
+                throws IllegalArgumentException, ValueOverflowException {
             if (builder.version != 2) {
                 throw new IllegalArgumentException("version must be 2: " + builder.version);
             }
@@ -188,43 +261,49 @@ public interface TCStringEncoder {
             version = checkBounds(builder.version, FieldDefs.CORE_CMP_VERSION);
             /* We are using the value of updated field in the builder to populate the created in order to keep the
                values of created and update same as per the new TCF specifications */
-            created = Objects.requireNonNull(builder.updated.truncatedTo(ChronoUnit.DAYS));
-            updated = Objects.requireNonNull(builder.updated.truncatedTo(ChronoUnit.DAYS));
+            Objects.requireNonNull(builder.updated);
+            if (builder.updated != loadedUpdated) {
+                // reloading the same instant doesn't truncate it again
+                updated = Objects.requireNonNull(builder.updated.truncatedTo(ChronoUnit.DAYS));
+                loadedUpdated = builder.updated;
+            }
+            created = updated;
             cmpId = checkBounds(builder.cmpId, FieldDefs.CORE_CMP_ID);
             cmpVersion = checkBounds(builder.cmpVersion, FieldDefs.CORE_CMP_VERSION);
             consentScreen = checkBounds(builder.consentScreen, FieldDefs.CORE_CONSENT_SCREEN);
             consentLanguage = Objects.requireNonNull(builder.consentLanguage);
             vendorListVersion = checkBounds(builder.vendorListVersion, FieldDefs.CORE_VENDOR_LIST_VERSION);
-            purposesConsent = checkBoundsBits(builder.purposesConsent, FieldDefs.CORE_PURPOSES_CONSENT).build();
-            vendorsConsent = checkBounds(builder.vendorConsent, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).build();
+            purposesConsent = checkBoundsBits(builder.purposesConsent, FieldDefs.CORE_PURPOSES_CONSENT).view();
+            vendorsConsent = checkBounds(builder.vendorConsent, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).view();
             tcfPolicyVersion = checkBounds(builder.tcfPolicyVersion, FieldDefs.CORE_TCF_POLICY_VERSION);
             isServiceSpecific = builder.isServiceSpecific;
             useNonStandardStacks = builder.useNonStandardStacks;
             specialFeatureOptIns =
-                    checkBoundsBits(builder.specialFeatureOptIns, FieldDefs.CORE_SPECIAL_FEATURE_OPT_INS).build();
+                    checkBoundsBits(builder.specialFeatureOptIns, FieldDefs.CORE_SPECIAL_FEATURE_OPT_INS).view();
             purposesLITransparency =
-                    checkBoundsBits(builder.purposesLITransparency, FieldDefs.CORE_PURPOSES_LI_TRANSPARENCY).build();
+                    checkBoundsBits(builder.purposesLITransparency, FieldDefs.CORE_PURPOSES_LI_TRANSPARENCY).view();
             purposeOneTreatment = builder.purposeOneTreatment;
             publisherCC = Objects.requireNonNull(builder.publisherCC);
             vendorLegitimateInterest =
-                    checkBounds(builder.vendorLegitimateInterest, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).build();
-            disclosedVendors = checkBounds(builder.disclosedVendors, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).build();
-            allowedVendors = checkBounds(builder.allowedVendors, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).build();
+                    checkBounds(builder.vendorLegitimateInterest, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).view();
+            disclosedVendors = checkBounds(builder.disclosedVendors, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).view();
+            allowedVendors = checkBounds(builder.allowedVendors, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID).view();
             pubPurposesLITransparency =
                     checkBoundsBits(builder.pubPurposesLITransparency, FieldDefs.PPTC_PUB_PURPOSES_LI_TRANSPARENCY)
-                        .build();
+                        .view();
             pubPurposesConsent =
-                    checkBoundsBits(builder.pubPurposesConsent, FieldDefs.PPTC_PUB_PURPOSES_CONSENT).build();
+                    checkBoundsBits(builder.pubPurposesConsent, FieldDefs.PPTC_PUB_PURPOSES_CONSENT).view();
             numberOfCustomPurposes =
                     checkBounds(
                             Math.max(builder.customPurposesLITransparency.max(), builder.customPurposesConsent.max()),
                             FieldDefs.PPTC_NUM_CUSTOM_PURPOSES);
-            customPurposesLITransparency = builder.customPurposesLITransparency.build();
-            customPurposesConsent = builder.customPurposesConsent.build();
-            publisherRestrictions = checkBounds(new ArrayList<>(builder.publisherRestrictions));
+            customPurposesLITransparency = builder.customPurposesLITransparency.view();
+            customPurposesConsent = builder.customPurposesConsent.view();
+            publisherRestrictions = checkBounds(builder.publisherRestrictions);
+            return this;
         }
 
-        private String encodeSegment(SegmentType segmentType) {
+        private void encodeSegment(BitWriter bitWriter, VendorFieldEncoder vendorEncoder, SegmentType segmentType) {
             IntIterable intIterable = BitSetIntIterable.EMPTY;
 
             switch (segmentType) {
@@ -240,33 +319,11 @@ public interface TCStringEncoder {
                     throw new IllegalArgumentException("invalid segment type: " + segmentType);
             }
 
-            if (intIterable.isEmpty()) {
-                return "";
-            }
-
-            BitWriter bitWriter = new BitWriter();
             bitWriter.write(segmentType.value(), OOB_SEGMENT_TYPE);
-            bitWriter.write(new VendorFieldEncoder().add(intIterable).build());
-
-            return bitWriter.toBase64();
+            vendorEncoder.reset().add(intIterable).build(bitWriter);
         }
 
-        /**
-         * Disclosed Vendors (OOB)
-         */
-        private String encodeDisclosedVendors() {
-            return encodeSegment(SegmentType.DISCLOSED_VENDOR);
-        }
-
-        /**
-         * Allowed Vendors (OOB) segment
-         */
-        private String encodeAllowedVendors() {
-            return encodeSegment(SegmentType.ALLOWED_VENDOR);
-        }
-
-        private String encodeCoreString() {
-            BitWriter bitWriter = new BitWriter();
+        private void encodeCoreString(BitWriter bitWriter, VendorFieldEncoder vendorEncoder) {
             bitWriter.write(version, CORE_VERSION);
             bitWriter.write(created, CORE_CREATED);
             bitWriter.write(updated, CORE_LAST_UPDATED);
@@ -283,50 +340,131 @@ public interface TCStringEncoder {
             bitWriter.write(purposesLITransparency, CORE_PURPOSES_LI_TRANSPARENCY);
             bitWriter.write(purposeOneTreatment, CORE_PURPOSE_ONE_TREATMENT);
             bitWriter.write(publisherCC, CORE_PUBLISHER_CC);
-            bitWriter.write(new VendorFieldEncoder().add(vendorsConsent).build());
-            bitWriter.write(new VendorFieldEncoder().add(vendorLegitimateInterest).build());
+            vendorEncoder.reset().add(vendorsConsent).build(bitWriter);
+            vendorEncoder.reset().add(vendorLegitimateInterest).build(bitWriter);
 
             bitWriter.write(publisherRestrictions.size(), FieldDefs.CORE_NUM_PUB_RESTRICTION);
 
-            for (PublisherRestrictionEntry pre : publisherRestrictions) {
+            for (int i = 0; i < publisherRestrictions.size(); i++) {
+                PublisherRestrictionEntry pre = publisherRestrictions.get(i);
                 bitWriter.write(pre.getPurposeId(), FieldDefs.PURPOSE_ID);
                 bitWriter.write(pre.getRestrictionType().ordinal(), FieldDefs.RESTRICTION_TYPE);
-                VendorFieldEncoder v = new VendorFieldEncoder()
+                vendorEncoder.reset()
                     .emitRangeEncoding(true)
                     .emitMaxVendorId(false)
                     .emitIsRangeEncoding(false)
-                    .add(pre.getVendors());
-                bitWriter.write(v.build());
+                    .add(pre.getVendors())
+                    .build(bitWriter);
             }
-
-            return bitWriter.toBase64();
         }
 
         /**
          * Publisher Purposes Transparency and Consent segment
          */
-        private String encodePPTC() {
-            if (pubPurposesConsent.isEmpty() && pubPurposesLITransparency.isEmpty() && numberOfCustomPurposes == 0) {
-                return "";
-            }
-
-            BitWriter bitWriter = new BitWriter();
+        private void encodePPTC(BitWriter bitWriter) {
             bitWriter.write(SegmentType.PUBLISHER_TC.value(), PPTC_SEGMENT_TYPE);
             bitWriter.write(pubPurposesConsent, PPTC_PUB_PURPOSES_CONSENT);
             bitWriter.write(pubPurposesLITransparency, PPTC_PUB_PURPOSES_LI_TRANSPARENCY);
             bitWriter.write(numberOfCustomPurposes, PPTC_NUM_CUSTOM_PURPOSES);
             bitWriter.write(customPurposesConsent, numberOfCustomPurposes);
             bitWriter.write(customPurposesLITransparency, numberOfCustomPurposes);
-
-            return bitWriter.toBase64();
         }
 
         @Override
         public String encode() {
-            return Stream
-                .of(encodeCoreString(), encodeDisclosedVendors(), encodeAllowedVendors(), encodePPTC())
-                .filter(str -> str != null && !str.isEmpty())
-                .collect(Collectors.joining("."));
+            // each segment gets its own bits so that the string is sized once from their lengths
+            VendorFieldEncoder vendorEncoder = new VendorFieldEncoder();
+            BitWriter[] segments = new BitWriter[SEGMENT_ORDER.length];
+            int length = -1;
+            for (int i = 0; i < SEGMENT_ORDER.length; i++) {
+                if (isEncoded(SEGMENT_ORDER[i])) {
+                    segments[i] = new BitWriter();
+                    write(SEGMENT_ORDER[i], segments[i], vendorEncoder);
+                    length += 1 + segments[i].base64Length();
+                }
+            }
+
+            StringBuilder out = new StringBuilder(length);
+            for (BitWriter segment : segments) {
+                if (segment != null) {
+                    if (out.length() > 0) {
+                        out.append('.');
+                    }
+                    segment.appendBase64(out);
+                }
+            }
+            return out.toString();
+        }
+
+        /**
+         * Appends the encoded segments to 'out', using 'bitWriter' and 'vendorEncoder' as scratch
+         * space. Empty out-of-band segments are omitted.
+         */
+        StringBuilder encode(StringBuilder out, BitWriter bitWriter, VendorFieldEncoder vendorEncoder) {
+            encode(SegmentType.DEFAULT, out, bitWriter, vendorEncoder);
+
+            for (int i = 1; i < SEGMENT_ORDER.length; i++) {
+                if (isEncoded(SEGMENT_ORDER[i])) {
+                    encode(SEGMENT_ORDER[i], out.append('.'), bitWriter, vendorEncoder);
+                }
+            }
+
+            return out;
+        }
+
+        /**
+         * Returns whether the segment is part of the encoded string. The core segment always is,
+         * out-of-band segments only when they are not empty.
+         */
+        private boolean isEncoded(SegmentType segmentType) {
+            switch (segmentType) {
+                case DISCLOSED_VENDOR:
+                    return !disclosedVendors.isEmpty();
+
+                case ALLOWED_VENDOR:
+                    return !allowedVendors.isEmpty();
+
+                case PUBLISHER_TC:
+                    return !pubPurposesConsent.isEmpty() || !pubPurposesLITransparency.isEmpty()
+                            || numberOfCustomPurposes != 0;
+
+                default:
+                    return true;
+            }
+        }
+
+        /**
+         * Appends a single segment to 'out', regardless of whether it is empty.
+         */
+        StringBuilder encode(SegmentType segmentType, StringBuilder out, BitWriter bitWriter,
+                VendorFieldEncoder vendorEncoder) {
+            write(segmentType, bitWriter, vendorEncoder);
+            return bitWriter.appendBase64(out);
+        }
+
+        /**
+         * Replaces the content of 'bitWriter' by the bits of a single segment.
+         */
+        private void write(SegmentType segmentType, BitWriter bitWriter, VendorFieldEncoder vendorEncoder) {
+            bitWriter.reset();
+
+            switch (segmentType) {
+                case DEFAULT:
+                    encodeCoreString(bitWriter, vendorEncoder);
+                    break;
+
+                case DISCLOSED_VENDOR:
+                case ALLOWED_VENDOR:
+                    encodeSegment(bitWriter, vendorEncoder, segmentType);
+                    break;
+
+                case PUBLISHER_TC:
+                    encodePPTC(bitWriter);
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("invalid segment type: " + segmentType);
+            }
         }
 
         @Override
@@ -363,6 +501,13 @@ public interface TCStringEncoder {
         private boolean defaultConsent = false;
         private final List<PublisherRestrictionEntry> publisherRestrictions = new ArrayList<>();
 
+        // scratch space reused by encode(StringBuilder) and encode(Appendable)
+        private final BitWriter bitWriter = new BitWriter();
+        private final VendorFieldEncoder vendorEncoder = new VendorFieldEncoder();
+        private final StringBuilder chars = new StringBuilder();
+        private TCStringEncoderV1 encoderV1;
+        private TCStringEncoderV2 encoderV2;
+
         private Builder() {
         }
 
@@ -686,6 +831,41 @@ public interface TCStringEncoder {
             return this;
         }
 
+        /**
+         * Restores every field to its default value so that the builder can be reused for the next
+         * consent string. Buffers allocated by previous calls to {@link #encode(StringBuilder)} are
+         * kept.
+         */
+        public Builder reset() {
+            version = 0;
+            created = Instant.now(Clock.systemUTC()).truncatedTo(ChronoUnit.DAYS);
+            updated = created;
+            cmpId = 0;
+            cmpVersion = 0;
+            consentScreen = 0;
+            consentLanguage = "EN";
+            vendorListVersion = 0;
+            purposesConsent.clear();
+            vendorConsent.clear();
+            tcfPolicyVersion = 0;
+            isServiceSpecific = false;
+            useNonStandardStacks = false;
+            specialFeatureOptIns.clear();
+            purposesLITransparency.clear();
+            purposeOneTreatment = false;
+            publisherCC = "US";
+            vendorLegitimateInterest.clear();
+            disclosedVendors.clear();
+            allowedVendors.clear();
+            pubPurposesConsent.clear();
+            customPurposesConsent.clear();
+            customPurposesLITransparency.clear();
+            pubPurposesLITransparency.clear();
+            defaultConsent = false;
+            publisherRestrictions.clear();
+            return this;
+        }
+
         @Override
         public String encode() {
             if (this.version == 1) {
@@ -695,6 +875,78 @@ public interface TCStringEncoder {
             return new TCStringEncoderV2(this).encode();
         }
 
+        /**
+         * Appends the encoded string to 'out'. The bit buffers and the encoder used while encoding are
+         * kept by this builder and reused by later calls, so that encoding doesn't allocate once 'out'
+         * and the buffers are large enough. This makes the method unsafe for concurrent use. 'out' is
+         * left unchanged if an exception is thrown.
+         *
+         * @throws IllegalArgumentException if the version is invalid
+         * @throws ValueOverflowException if an attempt was made to encode a value beyond it's limit.
+         */
+        @Override
+        public StringBuilder encode(StringBuilder out) {
+            int length = out.length();
+            try {
+                if (this.version == 1) {
+                    return encoderV1().encode(out, bitWriter, vendorEncoder);
+                }
+
+                return encoderV2().encode(out, bitWriter, vendorEncoder);
+            } catch (RuntimeException e) {
+                out.setLength(length);
+                throw e;
+            }
+        }
+
+        /**
+         * Appends a single v2 segment to 'out', reusing this builder's buffers.
+         *
+         * @throws IllegalArgumentException if the version is not 2 or the segment type is invalid
+         * @throws ValueOverflowException if an attempt was made to encode a value beyond it's limit.
+         */
+        StringBuilder encode(SegmentType segmentType, StringBuilder out) {
+            return encoderV2().encode(segmentType, out, bitWriter, vendorEncoder);
+        }
+
+        /**
+         * Returns the reusable v1 encoder, loaded with the fields of this builder.
+         */
+        private TCStringEncoderV1 encoderV1() {
+            if (encoderV1 == null) {
+                encoderV1 = new TCStringEncoderV1();
+            }
+            return encoderV1.load(this);
+        }
+
+        /**
+         * Returns the reusable v2 encoder, loaded with the validated fields of this builder.
+         *
+         * @throws IllegalArgumentException if the version is invalid
+         * @throws ValueOverflowException if an attempt was made to encode a value beyond it's limit.
+         */
+        private TCStringEncoderV2 encoderV2() {
+            if (encoderV2 == null) {
+                encoderV2 = new TCStringEncoderV2();
+            }
+            return encoderV2.load(this);
+        }
+
+        /**
+         * Appends the encoded string to 'out', reusing this builder's buffers.
+         *
+         * @see #encode(StringBuilder)
+         */
+        @Override
+        public Appendable encode(Appendable out) throws IOException {
+            if (out instanceof StringBuilder) {
+                return encode((StringBuilder) out);
+            }
+
+            chars.setLength(0);
+            return out.append(encode(chars));
+        }
+
         @Override
         public TCString toTCString() {
             return TCString.decode(encode());
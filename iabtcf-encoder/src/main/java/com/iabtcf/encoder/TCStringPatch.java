@@ -0,0 +1,410 @@
+package com.iabtcf.encoder;
+
+/*-
+ * #%L
+ * IAB TCF Java Encoder Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.Objects;
+
+import com.iabtcf.decoder.DecoderOption;
+import com.iabtcf.decoder.TCString;
+import com.iabtcf.encoder.exceptions.ValueOverflowException;
+import com.iabtcf.utils.Base64Url;
+import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.utils.FieldDefs;
+import com.iabtcf.utils.IntIterable;
+import com.iabtcf.utils.IntIterator;
+import com.iabtcf.v2.PublisherRestriction;
+import com.iabtcf.v2.SegmentType;
+
+/**
+ * A set of changes that can be applied to encoded v2 consent strings. Only the segments affected by
+ * the changes are re-encoded; every other segment is copied verbatim from the original string.
+ *
+ * <pre>
+ * TCStringPatch patch = TCStringPatch.newBuilder()
+ *     .lastUpdated(Instant.now())
+ *     .addVendorConsent(10)
+ *     .removeVendorConsent(12)
+ *     .build();
+ *
+ * String updated = patch.apply(tcString);
+ * </pre>
+ *
+ * Instances are immutable and may be applied to any number of strings, from any thread.
+ */
+public final class TCStringPatch {
+    private final Instant lastUpdated;
+    private final Integer cmpId;
+    private final Integer cmpVersion;
+    private final Integer consentScreen;
+    private final String consentLanguage;
+    private final Integer vendorListVersion;
+    private final SetChange purposesConsent;
+    private final SetChange purposesLITransparency;
+    private final SetChange specialFeatureOptIns;
+    private final SetChange vendorConsent;
+    private final SetChange vendorLegitimateInterest;
+    private final SetChange disclosedVendors;
+    private final SetChange allowedVendors;
+
+    private TCStringPatch(Builder builder) {
+        lastUpdated = builder.lastUpdated;
+        cmpId = builder.cmpId;
+        cmpVersion = builder.cmpVersion;
+        consentScreen = builder.consentScreen;
+        consentLanguage = builder.consentLanguage;
+        vendorListVersion = builder.vendorListVersion;
+        purposesConsent = new SetChange(builder.purposesConsent);
+        purposesLITransparency = new SetChange(builder.purposesLITransparency);
+        specialFeatureOptIns = new SetChange(builder.specialFeatureOptIns);
+        vendorConsent = new SetChange(builder.vendorConsent);
+        vendorLegitimateInterest = new SetChange(builder.vendorLegitimateInterest);
+        disclosedVendors = new SetChange(builder.disclosedVendors);
+        allowedVendors = new SetChange(builder.allowedVendors);
+    }
+
+    /**
+     * Applies the changes to 'tcString' and returns the resulting consent string. The core segment is
+     * re-encoded if any of its fields changed, in which case the created date is set to the last
+     * updated date as done by {@link TCStringEncoder}. The disclosed and allowed vendors segments are
+     * re-encoded only if their vendors changed; they are dropped if they became empty and appended if
+     * they didn't exist. All other segments are copied unchanged.
+     *
+     * @throws IllegalArgumentException if 'tcString' is not a v2 string or is not valid base64
+     * @throws com.iabtcf.exceptions.TCStringDecodeException if 'tcString' can't be decoded
+     * @throws ValueOverflowException if a changed value can't be encoded
+     */
+    public String apply(String tcString) throws IllegalArgumentException, ValueOverflowException {
+        TCString decoded = TCString.decode(tcString, DecoderOption.CORE_ONLY);
+        if (decoded.getVersion() != 2) {
+            throw new IllegalArgumentException("only v2 strings can be patched: " + decoded.getVersion());
+        }
+
+        TCStringEncoder.Builder encoder = TCStringEncoder.newBuilder().version(2);
+        StringBuilder out = new StringBuilder(tcString.length() + 16);
+        boolean disclosedDone = disclosedVendors.isEmpty();
+        boolean allowedDone = allowedVendors.isEmpty();
+
+        int end = segmentEnd(tcString, 0);
+        if (changesCore()) {
+            encodeCore(decoded, encoder, out);
+        } else {
+            out.append(tcString, 0, end);
+        }
+
+        for (int start = end + 1; start < tcString.length(); start = end + 1) {
+            end = segmentEnd(tcString, start);
+            SegmentType segmentType = segmentType(tcString, start, end);
+            if (segmentType == SegmentType.DISCLOSED_VENDOR && !disclosedDone) {
+                disclosedDone = true;
+                encodeSegment(segmentType, decoded.getDisclosedVendors(), disclosedVendors, encoder,
+                        out, tcString.substring(start, end));
+            } else if (segmentType == SegmentType.ALLOWED_VENDOR && !allowedDone) {
+                allowedDone = true;
+                encodeSegment(segmentType, decoded.getAllowedVendors(), allowedVendors, encoder,
+                        out, tcString.substring(start, end));
+            } else {
+                out.append('.').append(tcString, start, end);
+            }
+        }
+
+        if (!disclosedDone) {
+            encodeSegment(SegmentType.DISCLOSED_VENDOR, BitSetIntIterable.EMPTY, disclosedVendors, encoder,
+                    out, null);
+        }
+        if (!allowedDone) {
+            encodeSegment(SegmentType.ALLOWED_VENDOR, BitSetIntIterable.EMPTY, allowedVendors, encoder,
+                    out, null);
+        }
+
+        return out.toString();
+    }
+
+    private boolean changesCore() {
+        return lastUpdated != null
+                || cmpId != null
+                || cmpVersion != null
+                || consentScreen != null
+                || consentLanguage != null
+                || vendorListVersion != null
+                || !purposesConsent.isEmpty()
+                || !purposesLITransparency.isEmpty()
+                || !specialFeatureOptIns.isEmpty()
+                || !vendorConsent.isEmpty()
+                || !vendorLegitimateInterest.isEmpty();
+    }
+
+    private void encodeCore(TCString decoded, TCStringEncoder.Builder encoder, StringBuilder out) {
+        encoder.lastUpdated(lastUpdated != null ? lastUpdated : decoded.getLastUpdated())
+            .cmpId(cmpId != null ? cmpId : decoded.getCmpId())
+            .cmpVersion(cmpVersion != null ? cmpVersion : decoded.getCmpVersion())
+            .consentScreen(consentScreen != null ? consentScreen : decoded.getConsentScreen())
+            .consentLanguage(consentLanguage != null ? consentLanguage : decoded.getConsentLanguage())
+            .vendorListVersion(vendorListVersion != null ? vendorListVersion : decoded.getVendorListVersion())
+            .tcfPolicyVersion(decoded.getTcfPolicyVersion())
+            .isServiceSpecific(decoded.isServiceSpecific())
+            .useNonStandardStacks(decoded.getUseNonStandardStacks())
+            .addSpecialFeatureOptIns(specialFeatureOptIns.apply(decoded.getSpecialFeatureOptIns()))
+            .addPurposesConsent(purposesConsent.apply(decoded.getPurposesConsent()))
+            .addPurposesLITransparency(purposesLITransparency.apply(decoded.getPurposesLITransparency()))
+            .purposeOneTreatment(decoded.getPurposeOneTreatment())
+            .publisherCC(decoded.getPublisherCC())
+            .addVendorConsent(vendorConsent.apply(decoded.getVendorConsent()))
+            .addVendorLegitimateInterest(vendorLegitimateInterest.apply(decoded.getVendorLegitimateInterest()));
+
+        for (PublisherRestriction pr : decoded.getPublisherRestrictions()) {
+            encoder.addPublisherRestrictionEntry(PublisherRestrictionEntry.newBuilder()
+                .purposeId(pr.getPurposeId())
+                .restrictionType(pr.getRestrictionType())
+                .addVendor(pr.getVendorIds())
+                .build());
+        }
+
+        encoder.encode(SegmentType.DEFAULT, out);
+    }
+
+    /**
+     * Appends the vendors segment resulting from applying 'change' to 'original'. The original
+     * segment, if any, is copied if the vendors didn't change.
+     */
+    private static void encodeSegment(SegmentType segmentType, IntIterable original, SetChange change,
+            TCStringEncoder.Builder encoder, StringBuilder out, String originalSegment) {
+        BitSetIntIterable vendors = change.apply(original);
+        if (vendors.isEmpty()) {
+            return;
+        }
+
+        if (originalSegment != null && vendors.equals(original)) {
+            out.append('.').append(originalSegment);
+            return;
+        }
+
+        if (segmentType == SegmentType.DISCLOSED_VENDOR) {
+            encoder.clearDisclosedVendors().addDisclosedVendors(vendors);
+        } else {
+            encoder.clearAllowedVendors().addAllowedVendors(vendors);
+        }
+        encoder.encode(segmentType, out.append('.'));
+    }
+
+    private static int segmentEnd(String tcString, int start) {
+        int end = tcString.indexOf('.', start);
+        return end < 0 ? tcString.length() : end;
+    }
+
+    private static SegmentType segmentType(String tcString, int start, int end) {
+        if (start == end) {
+            return SegmentType.INVALID;
+        }
+        int sextet = Base64Url.sextetOrThrow(tcString.charAt(start));
+        return SegmentType.from(sextet >>> (6 - FieldDefs.OOB_SEGMENT_TYPE.getLength()));
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Ids added to and removed from one of the sets of a consent string. The last add or remove of an
+     * id wins.
+     */
+    private static final class SetChange {
+        private final BitSet added;
+        private final BitSet removed;
+
+        SetChange() {
+            this(new BitSet(), new BitSet());
+        }
+
+        SetChange(SetChange prototype) {
+            this((BitSet) prototype.added.clone(), (BitSet) prototype.removed.clone());
+        }
+
+        private SetChange(BitSet added, BitSet removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        void add(int... ids) {
+            for (int id : validate(ids)) {
+                added.set(id);
+                removed.clear(id);
+            }
+        }
+
+        void remove(int... ids) {
+            for (int id : validate(ids)) {
+                removed.set(id);
+                added.clear(id);
+            }
+        }
+
+        boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+        BitSetIntIterable apply(IntIterable original) {
+            BitSet bs = new BitSet();
+            for (IntIterator i = original.intIterator(); i.hasNext();) {
+                bs.set(i.nextInt());
+            }
+            bs.or(added);
+            bs.andNot(removed);
+            return BitSetIntIterable.from(bs);
+        }
+
+        private static int[] validate(int[] ids) {
+            for (int id : ids) {
+                if (id < 1) {
+                    throw new IllegalArgumentException("id must be > 0: " + id);
+                }
+            }
+            return ids;
+        }
+    }
+
+    public static final class Builder {
+        private Instant lastUpdated;
+        private Integer cmpId;
+        private Integer cmpVersion;
+        private Integer consentScreen;
+        private String consentLanguage;
+        private Integer vendorListVersion;
+        private final SetChange purposesConsent = new SetChange();
+        private final SetChange purposesLITransparency = new SetChange();
+        private final SetChange specialFeatureOptIns = new SetChange();
+        private final SetChange vendorConsent = new SetChange();
+        private final SetChange vendorLegitimateInterest = new SetChange();
+        private final SetChange disclosedVendors = new SetChange();
+        private final SetChange allowedVendors = new SetChange();
+
+        private Builder() {
+        }
+
+        /**
+         * In V2, the encoded value will be rounded to the day.
+         */
+        public Builder lastUpdated(Instant lastUpdated) {
+            this.lastUpdated = Objects.requireNonNull(lastUpdated);
+            return this;
+        }
+
+        public Builder cmpId(int cmpId) {
+            this.cmpId = cmpId;
+            return this;
+        }
+
+        public Builder cmpVersion(int cmpVersion) {
+            this.cmpVersion = cmpVersion;
+            return this;
+        }
+
+        public Builder consentScreen(int consentScreen) {
+            this.consentScreen = consentScreen;
+            return this;
+        }
+
+        public Builder consentLanguage(String consentLanguage) {
+            this.consentLanguage = Objects.requireNonNull(consentLanguage);
+            return this;
+        }
+
+        public Builder vendorListVersion(int vendorListVersion) {
+            this.vendorListVersion = vendorListVersion;
+            return this;
+        }
+
+        public Builder addPurposesConsent(int... purposeIds) {
+            purposesConsent.add(purposeIds);
+            return this;
+        }
+
+        public Builder removePurposesConsent(int... purposeIds) {
+            purposesConsent.remove(purposeIds);
+            return this;
+        }
+
+        public Builder addPurposesLITransparency(int... purposeIds) {
+            purposesLITransparency.add(purposeIds);
+            return this;
+        }
+
+        public Builder removePurposesLITransparency(int... purposeIds) {
+            purposesLITransparency.remove(purposeIds);
+            return this;
+        }
+
+        public Builder addSpecialFeatureOptIns(int... specialFeatureIds) {
+            specialFeatureOptIns.add(specialFeatureIds);
+            return this;
+        }
+
+        public Builder removeSpecialFeatureOptIns(int... specialFeatureIds) {
+            specialFeatureOptIns.remove(specialFeatureIds);
+            return this;
+        }
+
+        public Builder addVendorConsent(int... vendorIds) {
+            vendorConsent.add(vendorIds);
+            return this;
+        }
+
+        public Builder removeVendorConsent(int... vendorIds) {
+            vendorConsent.remove(vendorIds);
+            return this;
+        }
+
+        public Builder addVendorLegitimateInterest(int... vendorIds) {
+            vendorLegitimateInterest.add(vendorIds);
+            return this;
+        }
+
+        public Builder removeVendorLegitimateInterest(int... vendorIds) {
+            vendorLegitimateInterest.remove(vendorIds);
+            return this;
+        }
+
+        public Builder addDisclosedVendors(int... vendorIds) {
+            disclosedVendors.add(vendorIds);
+            return this;
+        }
+
+        public Builder removeDisclosedVendors(int... vendorIds) {
+            disclosedVendors.remove(vendorIds);
+            return this;
+        }
+
+        public Builder addAllowedVendors(int... vendorIds) {
+            allowedVendors.add(vendorIds);
+            return this;
+        }
+
+        public Builder removeAllowedVendors(int... vendorIds) {
+            allowedVendors.remove(vendorIds);
+            return this;
+        }
+
+        public TCStringPatch build() {
+            return new TCStringPatch(this);
+        }
+    }
+}
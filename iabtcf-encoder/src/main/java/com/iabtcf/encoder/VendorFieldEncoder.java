@@ -22,15 +22,20 @@ package com.iabtcf.encoder;
 
 import java.util.BitSet;
 import java.util.Iterator;
+import java.util.function.IntConsumer;
 
 import com.iabtcf.utils.FieldDefs;
 import com.iabtcf.utils.IntIterable;
-import com.iabtcf.utils.IntIterator;
+import com.iabtcf.utils.RangeIntIterable;
 
 /**
  * Encodes a bit / range field, typically used for encoding vendor lists.
  */
 class VendorFieldEncoder {
+    private static final int SINGLE_ENTRY_LENGTH =
+            FieldDefs.CORE_VENDOR_IS_RANGE_ENCODING.getLength() + FieldDefs.START_OR_ONLY_VENDOR_ID.getLength();
+    private static final int RANGE_ENTRY_LENGTH = SINGLE_ENTRY_LENGTH + FieldDefs.END_VENDOR_ID.getLength();
+
     private final BitSet vendors;
     private int maxVendorId;
     private boolean defaultConsent;
@@ -38,6 +43,9 @@ class VendorFieldEncoder {
     private boolean emitMaxVendorId;
     private boolean emitIsRangeEncoding;
 
+    // created once so that add(IntIterable) doesn't allocate an iterator or lambda per call
+    private final IntConsumer adder = vendorId -> add(vendorId);
+
     public VendorFieldEncoder() {
         this(new BitSet(), 0, false, false, true, true);
     }
@@ -63,6 +71,19 @@ class VendorFieldEncoder {
         this.emitIsRangeEncoding = emitIsRangeEncoding;
     }
 
+    /**
+     * Removes all vendor ids and restores the default settings, keeping the allocated buffers.
+     */
+    public VendorFieldEncoder reset() {
+        vendors.clear();
+        maxVendorId = 0;
+        defaultConsent = false;
+        emitRangeEncoding = false;
+        emitMaxVendorId = true;
+        emitIsRangeEncoding = true;
+        return this;
+    }
+
     /**
      * Whether to force range encoding even if it consumes more bits than bit field encoding.
      */
@@ -126,8 +147,22 @@ class VendorFieldEncoder {
     }
 
     public VendorFieldEncoder add(IntIterable ii) {
-        for (IntIterator i = ii.intIterator(); i.hasNext();) {
-            add(i.nextInt());
+        if (ii instanceof RangeIntIterable) {
+            return add((RangeIntIterable) ii);
+        }
+
+        ii.forEachInt(adder);
+
+        return this;
+    }
+
+    /**
+     * Adds every range at once instead of iterating the vendor ids.
+     */
+    public VendorFieldEncoder add(RangeIntIterable ranges) {
+        for (int i = 0; i < ranges.rangeCount(); i++) {
+            add(ranges.rangeStart(i));
+            vendors.set(ranges.rangeStart(i) - 1, ranges.rangeEnd(i));
         }
 
         return this;
@@ -145,7 +180,9 @@ class VendorFieldEncoder {
     }
 
     public BitWriter buildV1() {
-        return build(true);
+        BitWriter bv = new BitWriter();
+        build(bv, true);
+        return bv;
     }
 
     /**
@@ -153,47 +190,64 @@ class VendorFieldEncoder {
      * bit field or a range encoding; depending on which is smaller.
      */
     public BitWriter build() {
-        return build(false);
+        BitWriter bv = new BitWriter();
+        build(bv, false);
+        return bv;
     }
 
-    private BitWriter build(boolean emitDefaultConsent) {
-        BitWriter bv = new BitWriter();
+    /**
+     * Appends the encoded vendor ids to 'bv' rather than to a new BitWriter.
+     *
+     * @see #build()
+     */
+    public void build(BitWriter bv) {
+        build(bv, false);
+    }
+
+    /**
+     * Appends the encoded vendor ids, including the V1 default consent field, to 'bv'.
+     *
+     * @see #buildV1()
+     */
+    public void buildV1(BitWriter bv) {
+        build(bv, true);
+    }
 
+    private void build(BitWriter bv, boolean emitDefaultConsent) {
         if (vendors.length() == 0) {
             bv.writeV(0, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID);
             bv.write(false, FieldDefs.CORE_VENDOR_IS_RANGE_ENCODING);
-            return bv;
+            return;
         }
 
         maxVendorId = Math.max(vendors.length(), maxVendorId);
 
-        // create the range bit section
-        BitWriter rangeBits = new BitWriter();
-        int idxSet = vendors.get(0) ? 0 : vendors.nextSetBit(0);
-        int idxClr;
+        // Both encodings start with the max vendor id and the is range encoding flag. The bit field then
+        // takes maxVendorId bits, the range encoding the optional default consent bit, the number of
+        // entries and the entries themselves, sized from the runs of set bits. Unless range encoding is
+        // forced the sweep stops as soon as the range encoding is at least as long as the bit field. A V1
+        // default consent of true can only be expressed by a range encoding.
+        boolean forceRangeEncoding = emitRangeEncoding || (emitDefaultConsent && defaultConsent);
+        int bitFieldLength = maxVendorId;
         int numEntries = 0;
-        do {
-            idxClr = vendors.nextClearBit(idxSet);
-            int length = idxClr - idxSet;
-
-            if (length == 1) {
-                rangeBits.write(false, FieldDefs.CORE_VENDOR_IS_RANGE_ENCODING);
-                rangeBits.writeV(idxSet + 1, FieldDefs.START_OR_ONLY_VENDOR_ID);
-            } else {
-                rangeBits.write(true, FieldDefs.CORE_VENDOR_IS_RANGE_ENCODING);
-                rangeBits.writeV(idxSet + 1, FieldDefs.START_OR_ONLY_VENDOR_ID);
-                rangeBits.writeV(idxClr, FieldDefs.END_VENDOR_ID);
-            }
+        int rangeLength = FieldDefs.NUM_ENTRIES.getLength();
+        if (emitDefaultConsent) {
+            rangeLength += FieldDefs.V1_VENDOR_DEFAULT_CONSENT.getLength();
+        }
+        for (int idxSet = vendors.nextSetBit(0); idxSet >= 0
+                && (forceRangeEncoding || rangeLength < bitFieldLength);) {
+            int idxClr = vendors.nextClearBit(idxSet);
+            rangeLength += idxClr - idxSet == 1 ? SINGLE_ENTRY_LENGTH : RANGE_ENTRY_LENGTH;
             numEntries++;
-        } while ((idxSet = vendors.nextSetBit(idxClr)) > 0
-                && (rangeBits.length() < vendors.length() || emitRangeEncoding));
+            idxSet = vendors.nextSetBit(idxClr);
+        }
 
         // emit max vendor id
         if (emitMaxVendorId) {
             bv.writeV(maxVendorId, FieldDefs.CORE_VENDOR_MAX_VENDOR_ID);
         }
 
-        if (rangeBits.length() < vendors.length() || emitRangeEncoding) {
+        if (forceRangeEncoding || rangeLength < bitFieldLength) {
             // emit range bits
 
             // don't emit IS_A_RANGE when we forced a range encoding
@@ -204,7 +258,7 @@ class VendorFieldEncoder {
                 bv.write(defaultConsent, FieldDefs.V1_VENDOR_DEFAULT_CONSENT);
             }
             bv.writeV(numEntries, FieldDefs.NUM_ENTRIES);
-            bv.write(rangeBits);
+            writeRanges(bv);
         } else {
             // emit bit field
             bv.write(false, FieldDefs.IS_A_RANGE);
@@ -214,14 +268,41 @@ class VendorFieldEncoder {
                 rem = Long.SIZE;
             }
 
-            long[] bits = vendors.toLongArray();
-            for (int i = 0; i < bits.length - 1; i++) {
-                bv.write(Long.reverse(bits[i]), Long.SIZE);
+            int words = (vendors.length() + Long.SIZE - 1) / Long.SIZE;
+            for (int i = 0; i < words - 1; i++) {
+                bv.write(reversedWord(i), Long.SIZE);
             }
-            bv.write(Long.reverse(bits[bits.length - 1]) >>> (Long.SIZE - rem), rem);
+            bv.write(reversedWord(words - 1) >>> (Long.SIZE - rem), rem);
             bv.enforcePrecision(maxVendorId - vendors.length());
         }
+    }
 
-        return bv;
+    private void writeRanges(BitWriter bv) {
+        for (int idxSet = vendors.nextSetBit(0); idxSet >= 0;) {
+            int idxClr = vendors.nextClearBit(idxSet);
+
+            if (idxClr - idxSet == 1) {
+                bv.write(false, FieldDefs.CORE_VENDOR_IS_RANGE_ENCODING);
+                bv.writeV(idxSet + 1, FieldDefs.START_OR_ONLY_VENDOR_ID);
+            } else {
+                bv.write(true, FieldDefs.CORE_VENDOR_IS_RANGE_ENCODING);
+                bv.writeV(idxSet + 1, FieldDefs.START_OR_ONLY_VENDOR_ID);
+                bv.writeV(idxClr, FieldDefs.END_VENDOR_ID);
+            }
+            idxSet = vendors.nextSetBit(idxClr);
+        }
+    }
+
+    /**
+     * Returns the i-th 64 bit word of the vendor set, lowest vendor id in the most significant bit.
+     * Equivalent to Long.reverse(vendors.toLongArray()[i]) without copying the set.
+     */
+    private long reversedWord(int i) {
+        int end = (i + 1) * Long.SIZE;
+        long word = 0L;
+        for (int b = vendors.nextSetBit(i * Long.SIZE); b >= 0 && b < end; b = vendors.nextSetBit(b + 1)) {
+            word |= Long.MIN_VALUE >>> (b & (Long.SIZE - 1));
+        }
+        return word;
     }
 }
@@ -29,6 +29,8 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 import java.time.Instant;
+import java.util.Base64;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -472,4 +474,42 @@ public class BitWriterTest {
         BitWriter bw = new BitWriter(128);
         bw.writeV(64, FieldDefs.CHAR);
     }
+
+    @Test
+    public void testReset() {
+        BitWriter bw = new BitWriter(8);
+        bw.write(0xABCDEFL, 24);
+        bw.write(Long.MAX_VALUE, Long.SIZE);
+        bw.reset();
+        assertEquals(0, bw.length());
+
+        bw.write(0b101, 3);
+        BitWriter expected = new BitWriter();
+        expected.write(0b101, 3);
+        assertArrayEquals(expected.toByteArray(), bw.toByteArray());
+    }
+
+    @Test
+    public void testAppendBase64() {
+        Random random = new Random(7);
+        for (int length = 0; length < 300; length++) {
+            BitWriter bw = new BitWriter();
+            for (int i = 0; i < length; i++) {
+                bw.write(random.nextBoolean());
+            }
+            int base64Length = bw.base64Length();
+            String expected = Base64.getUrlEncoder().withoutPadding().encodeToString(bw.toByteArray());
+            assertEquals(expected.length(), base64Length);
+            assertEquals(expected, bw.appendBase64(new StringBuilder()).toString());
+            assertEquals(expected, bw.toBase64());
+        }
+    }
+
+    @Test
+    public void testAppendBase64Precision() {
+        BitWriter bw = new BitWriter(30);
+        bw.write(0b111111, 6);
+        assertEquals(6, bw.base64Length());
+        assertEquals("_AAAAA", bw.appendBase64(new StringBuilder()).toString());
+    }
 }
@@ -0,0 +1,162 @@
+package com.iabtcf.encoder;
+
+/*-
+ * #%L
+ * IAB TCF Java Encoder Library
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static com.iabtcf.test.utils.IntIterableMatcher.matchInts;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.iabtcf.decoder.TCString;
+import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.v2.RestrictionType;
+
+public class TCStringPatchTest {
+    private static final Instant UPDATED = Instant.parse("2020-06-01T00:00:00Z");
+
+    private TCStringEncoder.Builder encoderBuilder;
+    private String original;
+
+    @Before
+    public void setUp() {
+        encoderBuilder = TCStringEncoder.newBuilder()
+            .version(2)
+            .lastUpdated(UPDATED)
+            .cmpId(10)
+            .cmpVersion(2)
+            .consentLanguage("FR")
+            .vendorListVersion(40)
+            .tcfPolicyVersion(2)
+            .addPurposesConsent(BitSetIntIterable.from(1, 3))
+            .addVendorConsent(BitSetIntIterable.from(4, 7, 12))
+            .addVendorLegitimateInterest(BitSetIntIterable.from(2))
+            .addDisclosedVendors(BitSetIntIterable.from(IntStream.range(1, 700).filter(i -> i % 3 != 0).toArray()))
+            .addPubPurposesConsent(BitSetIntIterable.from(2))
+            .addPublisherRestrictionEntry(PublisherRestrictionEntry.newBuilder()
+                .purposeId(2)
+                .restrictionType(RestrictionType.REQUIRE_CONSENT)
+                .addVendor(4, 5, 6)
+                .build());
+        original = encoderBuilder.encode();
+    }
+
+    @Test
+    public void testCoreChangeCopiesOtherSegments() {
+        Instant now = UPDATED.plus(3, ChronoUnit.DAYS);
+        String patched = TCStringPatch.newBuilder()
+            .lastUpdated(now)
+            .addVendorConsent(5)
+            .removeVendorConsent(7)
+            .addPurposesConsent(2)
+            .build()
+            .apply(original);
+
+        String[] originalSegments = original.split("\\.");
+        String[] patchedSegments = patched.split("\\.");
+        assertEquals(originalSegments.length, patchedSegments.length);
+        assertNotEquals(originalSegments[0], patchedSegments[0]);
+        for (int i = 1; i < originalSegments.length; i++) {
+            assertEquals(originalSegments[i], patchedSegments[i]);
+        }
+
+        String expected = encoderBuilder.lastUpdated(now)
+            .clearVendorConsent()
+            .addVendorConsent(BitSetIntIterable.from(4, 5, 12))
+            .addPurposesConsent(2)
+            .encode();
+        assertEquals(expected, patched);
+        assertEquals(TCString.decode(expected).getPublisherRestrictions(),
+                TCString.decode(patched).getPublisherRestrictions());
+    }
+
+    @Test
+    public void testVendorSegmentChangeCopiesCore() {
+        String patched = TCStringPatch.newBuilder()
+            .removeDisclosedVendors(1)
+            .addAllowedVendors(3, 9)
+            .build()
+            .apply(original);
+
+        assertEquals(original.substring(0, original.indexOf('.')), patched.substring(0, patched.indexOf('.')));
+
+        TCString decoded = TCString.decode(patched);
+        assertFalse(decoded.getDisclosedVendors().contains(1));
+        assertThat(decoded.getAllowedVendors(), matchInts(3, 9));
+        assertEquals(encoderBuilder.clearDisclosedVendors()
+            .addDisclosedVendors(BitSetIntIterable.from(IntStream.range(2, 700).filter(i -> i % 3 != 0).toArray()))
+            .addAllowedVendors(BitSetIntIterable.from(3, 9))
+            .toTCString(), decoded);
+    }
+
+    @Test
+    public void testEmptySegmentIsDropped() {
+        String withAllowed = encoderBuilder.addAllowedVendors(BitSetIntIterable.from(8)).encode();
+        String patched = TCStringPatch.newBuilder()
+            .removeAllowedVendors(8)
+            .build()
+            .apply(withAllowed);
+        assertEquals(original, patched);
+    }
+
+    @Test
+    public void testUnchangedSegmentIsCopied() {
+        TCStringPatch patch = TCStringPatch.newBuilder()
+            .addDisclosedVendors(1)
+            .removeAllowedVendors(1)
+            .build();
+        assertEquals(original, patch.apply(original));
+        assertEquals(original, TCStringPatch.newBuilder().build().apply(original));
+    }
+
+    @Test
+    public void testLastChangeWins() {
+        String patched = TCStringPatch.newBuilder()
+            .addVendorConsent(20)
+            .removeVendorConsent(20)
+            .removeVendorLegitimateInterest(30)
+            .addVendorLegitimateInterest(30)
+            .build()
+            .apply(original);
+
+        TCString decoded = TCString.decode(patched);
+        assertThat(decoded.getVendorConsent(), matchInts(4, 7, 12));
+        assertThat(decoded.getVendorLegitimateInterest(), matchInts(2, 30));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testV1NotSupported() {
+        String v1 = TCStringEncoder.newBuilder().version(1).encode();
+        TCStringPatch.newBuilder().cmpId(1).build().apply(v1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidId() {
+        TCStringPatch.newBuilder().addVendorConsent(0);
+    }
+}
@@ -4,7 +4,9 @@ import static com.iabtcf.test.utils.IntIterableMatcher.matchInts;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /*-
  * #%L
@@ -26,6 +28,7 @@ import static org.junit.Assert.assertTrue;
  * #L%
  */
 
+import java.io.StringWriter;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -36,6 +39,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.iabtcf.decoder.TCString;
+import com.iabtcf.encoder.exceptions.ValueOverflowException;
 import com.iabtcf.utils.BitSetIntIterable;
 import com.iabtcf.utils.IntIterable;
 import com.iabtcf.v2.PublisherRestriction;
@@ -461,4 +465,82 @@ public class TCStringV2EncoderTest {
             .addAllowedVendors(400);
         assertNotEquals(tcStr, b.toTCString());
     }
+
+    @Test
+    public void testEncodeToStringBuilder() throws Exception {
+        encoderBuilder.addDisclosedVendors(BitSetIntIterable.from(1, 2, 3, 50))
+            .addAllowedVendors(BitSetIntIterable.from(4))
+            .addPubPurposesConsent(BitSetIntIterable.from(1))
+            .addPublisherRestrictionEntry(PublisherRestrictionEntry.newBuilder()
+                .purposeId(1)
+                .restrictionType(RestrictionType.REQUIRE_CONSENT)
+                .addVendor(BitSetIntIterable.from(1, 2, 3))
+                .build());
+        String expected = encoderBuilder.encode();
+
+        StringBuilder sb = new StringBuilder("prefix:");
+        assertSame(sb, encoderBuilder.encode(sb));
+        assertEquals("prefix:" + expected, sb.toString());
+
+        // the second call reuses the builder's buffers
+        sb.setLength(0);
+        assertEquals(expected, encoderBuilder.encode(sb).toString());
+
+        StringWriter writer = new StringWriter();
+        encoderBuilder.encode((Appendable) writer);
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void testEncodeToStringBuilderAfterChange() {
+        StringBuilder sb = new StringBuilder();
+        encoderBuilder.encode(sb);
+
+        // the reused encoder picks up every change to the builder
+        Instant lastUpdated = Instant.parse("2021-03-04T05:06:07Z");
+        encoderBuilder.lastUpdated(lastUpdated).addVendorConsent(7).cmpId(42);
+        sb.setLength(0);
+        assertEquals(encoderBuilder.encode(), encoderBuilder.encode(sb).toString());
+
+        TCString decoded = TCString.decode(sb.toString());
+        assertEquals(lastUpdated.truncatedTo(ChronoUnit.DAYS), decoded.getLastUpdated());
+        assertEquals(42, decoded.getCmpId());
+        assertTrue(decoded.getVendorConsent().contains(7));
+    }
+
+    @Test
+    public void testEncodeToStringBuilderFailure() {
+        StringBuilder sb = new StringBuilder("prefix");
+        encoderBuilder.addPublisherRestrictionEntry(PublisherRestrictionEntry.newBuilder()
+            .purposeId(1)
+            .restrictionType(RestrictionType.REQUIRE_CONSENT)
+            .addVendor(1 << 16)
+            .build());
+        try {
+            encoderBuilder.encode(sb);
+        } catch (ValueOverflowException e) {
+            assertEquals("prefix", sb.toString());
+            return;
+        }
+        fail("expected ValueOverflowException");
+    }
+
+    @Test
+    public void testReset() {
+        String expected = encoderBuilder.encode();
+
+        encoderBuilder.reset();
+        assertEquals(TCStringEncoder.newBuilder().version(2).encode(), encoderBuilder.version(2).encode());
+
+        encoderBuilder.reset()
+            .version(2)
+            .cmpId(7)
+            .addVendorConsent(BitSetIntIterable.from(3, 9));
+        assertEquals(TCStringEncoder.newBuilder()
+            .version(2)
+            .cmpId(7)
+            .addVendorConsent(BitSetIntIterable.from(3, 9))
+            .encode(), encoderBuilder.encode(new StringBuilder()).toString());
+        assertNotEquals(expected, encoderBuilder.encode());
+    }
 }
@@ -20,6 +20,7 @@ package com.iabtcf.encoder;
  * #L%
  */
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -36,6 +37,7 @@ import com.iabtcf.utils.BitReader;
 import com.iabtcf.utils.BitSetIntIterable;
 import com.iabtcf.utils.FieldDefs;
 import com.iabtcf.utils.IntIterable;
+import com.iabtcf.utils.RangeIntIterable;
 
 public class VendorFieldEncoderTest {
     private static final Random RAND = new Random(312L);
@@ -285,6 +287,15 @@ public class VendorFieldEncoderTest {
         assertFalse(br.readBits1(17 + 12)); // is a range
     }
 
+    @Test
+    public void testRangeIntIterable() {
+        RangeIntIterable ranges = RangeIntIterable.newBuilder().add(1, 1200).add(1500, 1510).build();
+
+        BitWriter expected = new VendorFieldEncoder().add(BitSetIntIterable.from(ranges)).build();
+        BitWriter actual = new VendorFieldEncoder().add(ranges).build();
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
     @Test(expected = IndexOutOfBoundsException.class)
     public void testNegtaiveVendorId() {
         new VendorFieldEncoder()
@@ -330,4 +341,71 @@ public class VendorFieldEncoderTest {
         assertEquals(0, j); // max vendor id
         assertEquals(false, br.readBits1(16)); // is a range
     }
+
+    @Test
+    public void testResetAndBuildInto() {
+        VendorFieldEncoder vfe = new VendorFieldEncoder()
+            .emitRangeEncoding(true)
+            .emitMaxVendorId(false)
+            .add(1, 2, 3, 400);
+        vfe.build();
+
+        BitWriter bw = new BitWriter();
+        bw.write(0b11, 2);
+        vfe.reset().add(5, 6, 100).build(bw);
+
+        BitWriter expected = new BitWriter();
+        expected.write(0b11, 2);
+        expected.write(new VendorFieldEncoder().add(5, 6, 100).build());
+        assertArrayEquals(expected.toByteArray(), bw.toByteArray());
+    }
+
+    @Test
+    public void testChoosesShorterEncoding() {
+        VendorFieldEncoder vfe = new VendorFieldEncoder();
+        for (int i = 1; i <= 600; i++) {
+            vfe.add(i);
+        }
+        // max vendor id, is range, num entries and one range entry
+        assertEquals(16 + 1 + 12 + 33, vfe.build().length());
+
+        vfe.reset();
+        for (int i = 1; i < 100; i += 2) {
+            vfe.add(i);
+        }
+        // max vendor id, is range and the bit field
+        assertEquals(16 + 1 + 99, vfe.build().length());
+
+        // 12 bits for the number of entries and 17 bits for the single entry against a bit field of
+        // max vendor id bits, ties go to the bit field
+        assertEquals(16 + 1 + 18, vfe.reset().add(18).build().length());
+        assertEquals(16 + 1 + 29, vfe.reset().add(29).build().length());
+        assertEquals(16 + 1 + 12 + 17, vfe.reset().add(30).build().length());
+
+        // the V1 range encoding has an additional default consent bit
+        assertEquals(16 + 1 + 30, vfe.reset().add(30).buildV1().length());
+        assertEquals(16 + 1 + 1 + 12 + 17, vfe.reset().add(31).buildV1().length());
+
+        // the bit field is padded to the max vendor id
+        assertEquals(16 + 1 + 1, vfe.reset().add(1).build().length());
+        assertEquals(16 + 1 + 12 + 17, vfe.reset().add(1).setMaxVendorId(100).build().length());
+    }
+
+    @Test
+    public void testV1DefaultConsentForcesRangeEncoding() {
+        VendorFieldEncoder vfe = new VendorFieldEncoder().defaultConsent(true).add(1);
+        assertEquals(16 + 1 + 1 + 12 + 17, vfe.buildV1().length());
+    }
+
+    @Test
+    public void testForcedRangeEncoding() {
+        VendorFieldEncoder vfe = new VendorFieldEncoder()
+            .emitRangeEncoding(true)
+            .emitMaxVendorId(false)
+            .emitIsRangeEncoding(false);
+        for (int i = 1; i < 100; i += 2) {
+            vfe.add(i);
+        }
+        assertEquals(12 + 50 * 17, vfe.build().length());
+    }
 }
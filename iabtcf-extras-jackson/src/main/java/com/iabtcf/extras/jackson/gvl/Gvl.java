@@ -174,6 +174,6 @@ public class Gvl implements com.iabtcf.extras.gvl.Gvl {
      */
     @Override
     public Optional<List<DataCategory>> getDataCategories() {
-        return Optional.ofNullable(new ArrayList<>(dataCategories.values()));
+        return dataCategories == null ? Optional.empty() : Optional.of(new ArrayList<>(dataCategories.values()));
     }
 }
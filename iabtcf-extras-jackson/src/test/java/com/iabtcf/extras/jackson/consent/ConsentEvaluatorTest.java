@@ -0,0 +1,230 @@
+package com.iabtcf.extras.jackson.consent;
+
+/*-
+ * #%L
+ * IAB TCF Java GVL Jackson
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.iabtcf.decoder.TCString;
+import com.iabtcf.encoder.PublisherRestrictionEntry;
+import com.iabtcf.encoder.TCStringEncoder;
+import com.iabtcf.extras.consent.ConsentEvaluator;
+import com.iabtcf.extras.jackson.Loader;
+import com.iabtcf.extras.jackson.TestUtil;
+import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.v2.RestrictionType;
+
+public class ConsentEvaluatorTest {
+    private static ConsentEvaluator evaluator;
+    private static ConsentEvaluator evaluatorV3;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Loader loader = new Loader();
+        evaluator = ConsentEvaluator.of(loader.globalVendorList(TestUtil.getGlobalVendorList()));
+        evaluatorV3 = ConsentEvaluator.of(loader.globalVendorList(TestUtil.getGlobalVendorListV3()));
+    }
+
+    private static TCStringEncoder.Builder builder() {
+        return TCStringEncoder.newBuilder().version(2);
+    }
+
+    private static PublisherRestrictionEntry restriction(int purposeId, RestrictionType type, int... vendors) {
+        return PublisherRestrictionEntry.newBuilder()
+            .purposeId(purposeId)
+            .restrictionType(type)
+            .addVendor(vendors)
+            .build();
+    }
+
+    @Test
+    public void testConsent() {
+        TCString tcString = builder()
+            .addPurposesConsent(BitSetIntIterable.from(1, 2, 3))
+            .addVendorConsent(BitSetIntIterable.from(2))
+            .toTCString();
+
+        assertTrue(evaluator.isAllowed(tcString, 2, 1));
+        assertTrue(evaluator.isAllowed(tcString, 2, 3));
+        assertFalse(evaluator.isAllowed(tcString, 2, 4));
+        assertFalse(evaluator.isAllowed(tcString, 2, 7));
+        assertFalse(evaluator.isAllowed(tcString, 3, 1));
+        assertFalse(evaluator.isAllowed(tcString, 2, 0));
+        assertFalse(evaluator.isAllowed(tcString, 2, 25));
+    }
+
+    @Test
+    public void testLegitimateInterest() {
+        TCString tcString = builder()
+            .addPurposesLITransparency(BitSetIntIterable.from(1, 7))
+            .addVendorLegitimateInterest(BitSetIntIterable.from(2))
+            .toTCString();
+
+        assertTrue(evaluator.isAllowed(tcString, 2, 7));
+        assertFalse(evaluator.isAllowed(tcString, 2, 9));
+        assertFalse(evaluator.isAllowed(tcString, 2, 1));
+    }
+
+    @Test
+    public void testDeletedVendor() {
+        TCString tcString = builder()
+            .addPurposesConsent(BitSetIntIterable.from(1, 3, 4))
+            .addVendorConsent(BitSetIntIterable.from(8))
+            .toTCString();
+
+        assertFalse(evaluator.isAllowed(tcString, 8, 1));
+    }
+
+    @Test
+    public void testNotAllowedRestriction() {
+        TCString tcString = builder()
+            .addPurposesConsent(BitSetIntIterable.from(1, 2))
+            .addVendorConsent(BitSetIntIterable.from(2))
+            .addPublisherRestrictionEntry(restriction(1, RestrictionType.NOT_ALLOWED, 2))
+            .toTCString();
+
+        assertFalse(evaluator.isAllowed(tcString, 2, 1));
+        assertTrue(evaluator.isAllowed(tcString, 2, 2));
+    }
+
+    @Test
+    public void testRequireLegitimateInterestRestriction() {
+        TCStringEncoder.Builder builder = builder()
+            .addPurposesConsent(BitSetIntIterable.from(2, 3))
+            .addVendorConsent(BitSetIntIterable.from(2))
+            .addPublisherRestrictionEntry(restriction(2, RestrictionType.REQUIRE_LEGITIMATE_INTEREST, 2))
+            .addPublisherRestrictionEntry(restriction(3, RestrictionType.REQUIRE_LEGITIMATE_INTEREST, 2));
+
+        // purpose 2 is flexible, purpose 3 is not
+        TCString tcString = builder.toTCString();
+        assertFalse(evaluator.isAllowed(tcString, 2, 2));
+        assertTrue(evaluator.isAllowed(tcString, 2, 3));
+
+        tcString = builder.addPurposesLITransparency(BitSetIntIterable.from(2))
+            .addVendorLegitimateInterest(BitSetIntIterable.from(2))
+            .toTCString();
+        assertTrue(evaluator.isAllowed(tcString, 2, 2));
+    }
+
+    @Test
+    public void testPurposeOneTreatment() {
+        TCStringEncoder.Builder builder = builder().addVendorConsent(BitSetIntIterable.from(2));
+        assertFalse(evaluator.isAllowed(builder.toTCString(), 2, 1));
+        assertTrue(evaluator.isAllowed(builder.purposeOneTreatment(true).toTCString(), 2, 1));
+    }
+
+    @Test
+    public void testAllowedVendorsMatchesIsAllowed() {
+        TCString[] tcStrings = {
+            builder()
+                .addPurposesConsent(BitSetIntIterable.from(1, 2, 3, 4, 7, 8))
+                .addPurposesLITransparency(BitSetIntIterable.from(7, 9, 10))
+                .addVendorConsent(BitSetIntIterable.from(1, 2))
+                .addVendorLegitimateInterest(BitSetIntIterable.from(1, 2))
+                .addPublisherRestrictionEntry(restriction(7, RestrictionType.REQUIRE_LEGITIMATE_INTEREST, 1, 2))
+                .addPublisherRestrictionEntry(restriction(9, RestrictionType.REQUIRE_CONSENT, 1))
+                .addPublisherRestrictionEntry(restriction(3, RestrictionType.NOT_ALLOWED, 2))
+                .toTCString(),
+            builder()
+                .purposeOneTreatment(true)
+                .addPurposesLITransparency(BitSetIntIterable.from(8, 10))
+                .addVendorConsent(BitSetIntIterable.from(1))
+                .addVendorLegitimateInterest(BitSetIntIterable.from(1, 2))
+                .addPublisherRestrictionEntry(restriction(10, RestrictionType.REQUIRE_LEGITIMATE_INTEREST, 1))
+                .addPublisherRestrictionEntry(restriction(8, RestrictionType.REQUIRE_LEGITIMATE_INTEREST, 1))
+                .toTCString()
+        };
+
+        BitSet out = new BitSet();
+        for (TCString tcString : tcStrings) {
+            for (ConsentEvaluator ce : new ConsentEvaluator[] {evaluator, evaluatorV3}) {
+                for (int purposeId = 0; purposeId <= 25; purposeId++) {
+                    BitSet expected = new BitSet();
+                    for (int vendorId = 0; vendorId <= 600; vendorId++) {
+                        expected.set(vendorId, ce.isAllowed(tcString, vendorId, purposeId));
+                    }
+
+                    out.set(1000);
+                    ce.allowedVendors(tcString, purposeId, out);
+                    assertEquals("purpose " + purposeId, expected, out);
+                    assertEquals(BitSetIntIterable.from(expected), ce.allowedVendors(tcString, purposeId));
+                }
+            }
+        }
+
+        assertTrue(evaluatorV3.isAllowed(tcStrings[1], 1, 8));
+        assertFalse(evaluatorV3.isAllowed(tcStrings[1], 2, 10));
+        assertTrue(evaluatorV3.isAllowed(tcStrings[1], 1, 1));
+    }
+
+    @Test
+    public void testEligibility() {
+        TCString tcString = builder()
+            .addPurposesConsent(BitSetIntIterable.from(1, 2, 3, 4, 7))
+            .addPurposesLITransparency(BitSetIntIterable.from(9))
+            .addVendorConsent(BitSetIntIterable.from(1, 2))
+            .addVendorLegitimateInterest(BitSetIntIterable.from(1))
+            .addPublisherRestrictionEntry(restriction(2, RestrictionType.NOT_ALLOWED, 2))
+            .toTCString();
+
+        int[] vendorIds = new int[70];
+        for (int i = 0; i < vendorIds.length; i++) {
+            vendorIds[i] = i % 4 - 1;
+        }
+
+        int[][] purposeSets = {{1}, {1, 2}, {1, 7}, {1, 9}, {3, 4, 9}, {}};
+        for (int[] purposeIds : purposeSets) {
+            long[] eligibility = evaluatorV3.eligibility(tcString, purposeIds, vendorIds);
+            assertEquals(2, eligibility.length);
+
+            BitSet actual = BitSet.valueOf(eligibility);
+            for (int i = 0; i < vendorIds.length; i++) {
+                boolean expected = true;
+                for (int purposeId : purposeIds) {
+                    expected &= evaluatorV3.isAllowed(tcString, vendorIds[i], purposeId);
+                }
+                assertEquals(expected, actual.get(i));
+            }
+        }
+
+        long[] out = {-1L, -1L, -1L};
+        evaluatorV3.eligibility(tcString, new int[] {1, 2}, vendorIds, out);
+        long[] expected = evaluatorV3.eligibility(tcString, new int[] {1, 2}, vendorIds);
+        assertEquals(BitSet.valueOf(expected), BitSet.valueOf(out));
+        assertEquals(0L, out[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEligibilityOutTooShort() {
+        evaluator.eligibility(builder().toTCString(), new int[] {1}, new int[65], new long[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testV1NotSupported() {
+        evaluator.isAllowed(TCStringEncoder.newBuilder().version(1).toTCString(), 2, 1);
+    }
+}
@@ -0,0 +1,121 @@
+package com.iabtcf.extras.jackson.gvl;
+
+/*-
+ * #%L
+ * IAB TCF Java GVL Jackson
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.iabtcf.extras.gvl.CompiledGvl;
+import com.iabtcf.extras.gvl.Gvl;
+import com.iabtcf.extras.gvl.Vendor;
+import com.iabtcf.extras.jackson.Loader;
+import com.iabtcf.extras.jackson.TestUtil;
+import com.iabtcf.utils.BitSetIntIterable;
+
+public class CompiledGvlTest {
+    private static Gvl gvl;
+    private static CompiledGvl compiled;
+    private static CompiledGvl compiledV3;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws IOException {
+        Loader loader = new Loader();
+        gvl = loader.globalVendorList(TestUtil.getGlobalVendorList());
+        compiled = CompiledGvl.of(gvl);
+        compiledV3 = CompiledGvl.of(loader.globalVendorList(TestUtil.getGlobalVendorListV3()));
+    }
+
+    @Test
+    public void testVersions() {
+        assertEquals(gvl.getGvlSpecificationVersion(), compiled.getGvlSpecificationVersion());
+        assertEquals(gvl.getVendorListVersion(), compiled.getVendorListVersion());
+        assertEquals(gvl.getTcfPolicyVersion(), compiled.getTcfPolicyVersion());
+        assertEquals(gvl.getLastUpdated(), compiled.getLastUpdated());
+    }
+
+    @Test
+    public void testLists() {
+        assertEquals(10, compiled.getPurposes().size());
+        assertEquals(2, compiled.getSpecialPurposes().size());
+        assertEquals(3, compiled.getFeatures().size());
+        assertEquals(2, compiled.getSpecialFeatures().size());
+        assertEquals(37, compiled.getStacks().size());
+        assertEquals(Arrays.asList(2, 8, 512),
+                compiled.getVendors().stream().map(Vendor::getId).collect(Collectors.toList()));
+        assertSame(compiled.getVendors(), compiled.getVendors());
+        assertFalse(compiled.getDataCategories().isPresent());
+        assertEquals(11, compiledV3.getDataCategories().get().size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testListsAreUnmodifiable() {
+        List<Vendor> vendors = compiled.getVendors();
+        vendors.remove(0);
+    }
+
+    @Test
+    public void testLookupById() {
+        assertSame(gvl.getVendor(8), compiled.getVendor(8));
+        assertEquals(8, compiled.getVendor(8).getId());
+        assertNull(compiled.getVendor(3));
+        assertNull(compiled.getVendor(-1));
+        assertNull(compiled.getVendor(513));
+        assertEquals(512, compiled.getMaxVendorId());
+
+        assertEquals(10, compiled.getPurpose(10).getId());
+        assertNull(compiled.getPurpose(11));
+        assertEquals(2, compiled.getSpecialPurpose(2).getId());
+        assertEquals(3, compiled.getFeature(3).getId());
+        assertEquals(1, compiled.getSpecialFeature(1).getId());
+        assertEquals("Basic ads, personalised ads profile, and ad measurement", compiled.getStack(5).getName());
+        assertNull(compiled.getStack(0));
+    }
+
+    @Test
+    public void testVendorsByPurpose() {
+        // vendors 8 and 512 are deleted
+        assertEquals(BitSetIntIterable.from(2), compiled.getConsentVendors(1));
+        assertEquals(BitSetIntIterable.from(2), compiled.getLegIntVendors(7));
+        assertEquals(BitSetIntIterable.from(2), compiled.getFlexibleVendors(2));
+        assertTrue(compiled.getConsentVendors(7).isEmpty());
+        assertTrue(compiled.getConsentVendors(25).isEmpty());
+
+        assertEquals(BitSetIntIterable.from(1, 2), compiledV3.getConsentVendors(7));
+        assertEquals(BitSetIntIterable.from(1), compiledV3.getFlexibleVendors(8));
+        assertEquals(BitSetIntIterable.from(1), compiledV3.getConsentVendors(8));
+    }
+
+    @Test
+    public void testOfCompiled() {
+        assertSame(compiled, CompiledGvl.of(compiled));
+    }
+}
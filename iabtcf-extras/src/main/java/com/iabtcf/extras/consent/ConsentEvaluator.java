@@ -0,0 +1,311 @@
+package com.iabtcf.extras.consent;
+
+/*-
+ * #%L
+ * IAB TCF Java GVL and CMP List
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.iabtcf.decoder.TCString;
+import com.iabtcf.extras.gvl.CompiledGvl;
+import com.iabtcf.extras.gvl.Gvl;
+import com.iabtcf.extras.gvl.Vendor;
+import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.utils.FieldDefs;
+import com.iabtcf.utils.IntIterable;
+import com.iabtcf.v2.PublisherRestrictionIndex;
+import com.iabtcf.v2.RestrictionType;
+
+/**
+ * Decides whether a vendor may process personal data for a purpose, based on a v2 consent string
+ * and the legal bases the vendor declared in the global vendor list.
+ *
+ * <p>
+ * The global vendor list is compiled once into per-vendor purpose masks and per-purpose vendor bit
+ * sets. A vendor is allowed for a purpose if
+ * <ul>
+ * <li>it is part of the vendor list, not deleted, and declares the purpose as consent or
+ * legitimate interest purpose,</li>
+ * <li>no publisher restriction disallows the purpose for the vendor,</li>
+ * <li>for the consent legal basis, the user consented to the purpose and the vendor,</li>
+ * <li>for the legitimate interest legal basis, the user did not object to the purpose nor the
+ * vendor. Purpose 1 can't be based on legitimate interest.</li>
+ * </ul>
+ * Publisher restrictions requiring consent or legitimate interest switch the legal basis of
+ * vendors that declared the purpose as flexible. If the purpose one treatment flag is set, purpose 1
+ * was not disclosed to the user and only the vendor consent is required for it.
+ *
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class ConsentEvaluator {
+    private static final int MAX_PURPOSE_ID = FieldDefs.CORE_PURPOSES_CONSENT.getLength();
+
+    private static final ThreadLocal<BitSet[]> SCRATCH =
+            ThreadLocal.withInitial(() -> new BitSet[] {new BitSet(), new BitSet(), new BitSet(), new BitSet()});
+
+    // purpose masks indexed by vendor id, bit p - 1 represents purpose p
+    private final int[] consentPurposes;
+    private final int[] legIntPurposes;
+    private final int[] flexiblePurposes;
+
+    // vendor bit sets indexed by purpose id
+    private final BitSet[] consentVendors;
+    private final BitSet[] legIntVendors;
+    private final BitSet[] flexibleVendors;
+
+    private ConsentEvaluator(CompiledGvl gvl) {
+        int maxVendorId = Math.max(0, gvl.getMaxVendorId());
+
+        consentPurposes = new int[maxVendorId + 1];
+        legIntPurposes = new int[maxVendorId + 1];
+        flexiblePurposes = new int[maxVendorId + 1];
+        consentVendors = new BitSet[MAX_PURPOSE_ID + 1];
+        legIntVendors = new BitSet[MAX_PURPOSE_ID + 1];
+        flexibleVendors = new BitSet[MAX_PURPOSE_ID + 1];
+        for (int p = 0; p <= MAX_PURPOSE_ID; p++) {
+            consentVendors[p] = new BitSet();
+            legIntVendors[p] = new BitSet();
+            flexibleVendors[p] = new BitSet();
+            if (p > 0) {
+                gvl.getConsentVendors(p).orInto(consentVendors[p]);
+                gvl.getLegIntVendors(p).orInto(legIntVendors[p]);
+                legIntVendors[p].andNot(consentVendors[p]);
+                gvl.getFlexibleVendors(p).orInto(flexibleVendors[p]);
+            }
+        }
+
+        for (Vendor vendor : gvl.getVendors()) {
+            if (vendor.isDeleted()) {
+                continue;
+            }
+
+            int id = vendor.getId();
+            consentPurposes[id] = mask(vendor.getPurposes());
+            legIntPurposes[id] = mask(vendor.getLegIntPurposes()) & ~consentPurposes[id];
+            flexiblePurposes[id] = mask(vendor.getFlexiblePurposes());
+        }
+    }
+
+    /**
+     * Compiles the vendors of the global vendor list. The per-purpose vendor sets are taken from
+     * {@link CompiledGvl}, so passing an already compiled list avoids compiling it twice.
+     */
+    public static ConsentEvaluator of(Gvl gvl) {
+        return new ConsentEvaluator(CompiledGvl.of(gvl));
+    }
+
+    /**
+     * Returns true if the vendor may process personal data for the purpose. Unknown vendors and
+     * purposes are never allowed.
+     *
+     * @throws IllegalArgumentException if tcString is not a v2 consent string
+     */
+    public boolean isAllowed(TCString tcString, int vendorId, int purposeId) {
+        checkVersion(tcString);
+
+        if (vendorId < 1 || vendorId >= consentPurposes.length || purposeId < 1 || purposeId > MAX_PURPOSE_ID) {
+            return false;
+        }
+
+        int bit = 1 << (purposeId - 1);
+        boolean consent = (consentPurposes[vendorId] & bit) != 0;
+        boolean legInt = (legIntPurposes[vendorId] & bit) != 0;
+        if (!consent && !legInt) {
+            return false;
+        }
+
+        boolean flexible = (flexiblePurposes[vendorId] & bit) != 0;
+        RestrictionType restriction = tcString.getPublisherRestrictionIndex().restrictionFor(purposeId, vendorId);
+        if (restriction != null) {
+            switch (restriction) {
+                case NOT_ALLOWED:
+                    return false;
+
+                case REQUIRE_CONSENT:
+                    consent |= flexible;
+                    legInt &= !flexible;
+                    break;
+
+                case REQUIRE_LEGITIMATE_INTEREST:
+                    legInt |= flexible;
+                    consent &= !flexible;
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        if (consent) {
+            return hasPurposeConsent(tcString, purposeId) && tcString.getVendorConsent().contains(vendorId);
+        }
+
+        return hasPurposeLegInt(tcString, purposeId) && tcString.getVendorLegitimateInterest().contains(vendorId);
+    }
+
+    /**
+     * Returns the vendors that may process personal data for the purpose.
+     *
+     * @see #allowedVendors(TCString, int, BitSet)
+     * @throws IllegalArgumentException if tcString is not a v2 consent string
+     */
+    public IntIterable allowedVendors(TCString tcString, int purposeId) {
+        BitSet bs = new BitSet();
+        allowedVendors(tcString, purposeId, bs);
+        return BitSetIntIterable.from(bs);
+    }
+
+    /**
+     * Sets the bits of 'out', indexed by vendor id, of the vendors that may process personal data for
+     * the purpose and clears all other bits. The result is computed with bit set operations over all
+     * vendors at once and gives the same answer as {@link #isAllowed(TCString, int, int)} for each
+     * vendor. Nothing is allocated once 'out' has grown to the largest vendor id.
+     *
+     * @throws IllegalArgumentException if tcString is not a v2 consent string
+     */
+    public void allowedVendors(TCString tcString, int purposeId, BitSet out) {
+        checkVersion(tcString);
+
+        out.clear();
+        if (purposeId < 1 || purposeId > MAX_PURPOSE_ID) {
+            return;
+        }
+
+        BitSet[] scratch = SCRATCH.get();
+        BitSet legInt = scratch[0];
+        BitSet flexible = scratch[1];
+        PublisherRestrictionIndex restrictions = tcString.getPublisherRestrictionIndex();
+
+        // vendors whose legal basis for the purpose is consent, after publisher restrictions. Requiring
+        // consent takes precedence over requiring legitimate interest, as in restrictionFor.
+        out.or(consentVendors[purposeId]);
+        legInt.clear();
+        legInt.or(legIntVendors[purposeId]);
+
+        flexible.clear();
+        flexible.or(flexibleVendors[purposeId]);
+        restrictions.getVendors(purposeId, RestrictionType.REQUIRE_LEGITIMATE_INTEREST).andInto(flexible);
+        flexible.and(out);
+        out.andNot(flexible);
+        legInt.or(flexible);
+
+        flexible.clear();
+        flexible.or(flexibleVendors[purposeId]);
+        restrictions.getVendors(purposeId, RestrictionType.REQUIRE_CONSENT).andInto(flexible);
+        flexible.and(legInt);
+        legInt.andNot(flexible);
+        out.or(flexible);
+
+        if (hasPurposeConsent(tcString, purposeId)) {
+            tcString.getVendorConsent().andInto(out);
+        } else {
+            out.clear();
+        }
+
+        if (hasPurposeLegInt(tcString, purposeId)) {
+            tcString.getVendorLegitimateInterest().andInto(legInt);
+            out.or(legInt);
+        }
+
+        restrictions.getVendors(purposeId, RestrictionType.NOT_ALLOWED).andNotInto(out);
+    }
+
+    /**
+     * Returns which of the candidate vendors may process personal data for all of the purposes. Bit i
+     * of the result, i.e. {@code (result[i >>> 6] >>> i) & 1}, is set if the vendor at index i of
+     * 'vendorIds' is allowed for every purpose in 'purposeIds'; if 'purposeIds' is empty every
+     * candidate is eligible. This is the layout of {@link BitSet#toLongArray()}.
+     *
+     * @see #eligibility(TCString, int[], int[], long[])
+     * @throws IllegalArgumentException if tcString is not a v2 consent string
+     */
+    public long[] eligibility(TCString tcString, int[] purposeIds, int[] vendorIds) {
+        long[] out = new long[(vendorIds.length + Long.SIZE - 1) / Long.SIZE];
+        eligibility(tcString, purposeIds, vendorIds, out);
+        return out;
+    }
+
+    /**
+     * Writes the eligibility of the candidate vendors to 'out', which must hold at least one bit per
+     * candidate. The allowed vendors of each purpose are computed once with bit set operations and
+     * intersected, so the cost depends on the number of purposes rather than on the number of
+     * candidates times purposes. Nothing is allocated.
+     *
+     * @see #eligibility(TCString, int[], int[])
+     * @throws IllegalArgumentException if tcString is not a v2 consent string or 'out' is too short
+     */
+    public void eligibility(TCString tcString, int[] purposeIds, int[] vendorIds, long[] out) {
+        checkVersion(tcString);
+        if ((long) out.length * Long.SIZE < vendorIds.length) {
+            throw new IllegalArgumentException(
+                    "out must hold " + vendorIds.length + " bits but holds " + out.length * Long.SIZE);
+        }
+
+        BitSet[] scratch = SCRATCH.get();
+        BitSet allowed = scratch[2];
+        BitSet eligible = scratch[3];
+        for (int i = 0; i < purposeIds.length; i++) {
+            allowedVendors(tcString, purposeIds[i], allowed);
+            if (i == 0) {
+                eligible.clear();
+                eligible.or(allowed);
+            } else {
+                eligible.and(allowed);
+            }
+        }
+
+        Arrays.fill(out, 0L);
+        for (int i = 0; i < vendorIds.length; i++) {
+            int vendorId = vendorIds[i];
+            if (purposeIds.length == 0 || (vendorId >= 0 && eligible.get(vendorId))) {
+                out[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    private static boolean hasPurposeConsent(TCString tcString, int purposeId) {
+        return (purposeId == 1 && tcString.getPurposeOneTreatment())
+                || tcString.getPurposesConsent().contains(purposeId);
+    }
+
+    private static boolean hasPurposeLegInt(TCString tcString, int purposeId) {
+        return purposeId != 1 && tcString.getPurposesLITransparency().contains(purposeId);
+    }
+
+    private static void checkVersion(TCString tcString) {
+        if (tcString.getVersion() != 2) {
+            throw new IllegalArgumentException("only v2 consent strings can be evaluated: " + tcString.getVersion());
+        }
+    }
+
+    private static int mask(List<Integer> purposeIds) {
+        int mask = 0;
+        if (purposeIds != null) {
+            for (int p : purposeIds) {
+                if (p >= 1 && p <= MAX_PURPOSE_ID) {
+                    mask |= 1 << (p - 1);
+                }
+            }
+        }
+        return mask;
+    }
+}
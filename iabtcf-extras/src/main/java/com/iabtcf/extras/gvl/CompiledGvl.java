@@ -0,0 +1,335 @@
+package com.iabtcf.extras.gvl;
+
+/*-
+ * #%L
+ * IAB TCF Java GVL and CMP List
+ * %%
+ * Copyright (C) 2020 IAB Technology Laboratory, Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import com.iabtcf.utils.BitSetIntIterable;
+import com.iabtcf.utils.IntIterable;
+
+/**
+ * An immutable snapshot of a global vendor list, compiled for fast lookups. Purposes, features,
+ * stacks and vendors are stored in arrays indexed by their id, the list getters return the same
+ * unmodifiable lists, ordered by id, on every call and the vendors declaring a purpose under each
+ * legal basis are precomputed.
+ *
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public final class CompiledGvl implements Gvl {
+    private final int gvlSpecificationVersion;
+    private final int vendorListVersion;
+    private final int tcfPolicyVersion;
+    private final Instant lastUpdated;
+
+    private final List<Purpose> purposes;
+    private final List<SpecialPurpose> specialPurposes;
+    private final List<Feature> features;
+    private final List<SpecialFeature> specialFeatures;
+    private final List<Stack> stacks;
+    private final List<Vendor> vendors;
+    private final Optional<List<DataCategory>> dataCategories;
+
+    // indexed by id, null if there is no entry with the id
+    private final Purpose[] purposesById;
+    private final SpecialPurpose[] specialPurposesById;
+    private final Feature[] featuresById;
+    private final SpecialFeature[] specialFeaturesById;
+    private final Stack[] stacksById;
+    private final Vendor[] vendorsById;
+
+    // ids of vendors that aren't deleted, indexed by purpose id
+    private final BitSetIntIterable[] consentVendors;
+    private final BitSetIntIterable[] legIntVendors;
+    private final BitSetIntIterable[] flexibleVendors;
+
+    private CompiledGvl(Gvl gvl) {
+        gvlSpecificationVersion = gvl.getGvlSpecificationVersion();
+        vendorListVersion = gvl.getVendorListVersion();
+        tcfPolicyVersion = gvl.getTcfPolicyVersion();
+        lastUpdated = gvl.getLastUpdated();
+
+        purposes = sorted(gvl.getPurposes(), Purpose::getId);
+        specialPurposes = sorted(gvl.getSpecialPurposes(), SpecialPurpose::getId);
+        features = sorted(gvl.getFeatures(), Feature::getId);
+        specialFeatures = sorted(gvl.getSpecialFeatures(), SpecialFeature::getId);
+        stacks = sorted(gvl.getStacks(), Stack::getId);
+        vendors = sorted(gvl.getVendors(), Vendor::getId);
+        dataCategories = gvl.getDataCategories().map(Collections::unmodifiableList);
+
+        purposesById = byId(purposes, Purpose::getId, Purpose[]::new);
+        specialPurposesById = byId(specialPurposes, SpecialPurpose::getId, SpecialPurpose[]::new);
+        featuresById = byId(features, Feature::getId, Feature[]::new);
+        specialFeaturesById = byId(specialFeatures, SpecialFeature::getId, SpecialFeature[]::new);
+        stacksById = byId(stacks, Stack::getId, Stack[]::new);
+        vendorsById = byId(vendors, Vendor::getId, Vendor[]::new);
+
+        int maxPurposeId = purposesById.length - 1;
+        for (Vendor vendor : vendors) {
+            maxPurposeId = Math.max(maxPurposeId, max(vendor.getPurposes()));
+            maxPurposeId = Math.max(maxPurposeId, max(vendor.getLegIntPurposes()));
+            maxPurposeId = Math.max(maxPurposeId, max(vendor.getFlexiblePurposes()));
+        }
+
+        BitSet[] consent = newBitSets(maxPurposeId + 1);
+        BitSet[] legInt = newBitSets(maxPurposeId + 1);
+        BitSet[] flexible = newBitSets(maxPurposeId + 1);
+        for (Vendor vendor : vendors) {
+            if (!vendor.isDeleted()) {
+                set(consent, vendor.getPurposes(), vendor.getId());
+                set(legInt, vendor.getLegIntPurposes(), vendor.getId());
+                set(flexible, vendor.getFlexiblePurposes(), vendor.getId());
+            }
+        }
+        consentVendors = toIntIterables(consent);
+        legIntVendors = toIntIterables(legInt);
+        flexibleVendors = toIntIterables(flexible);
+    }
+
+    /**
+     * Compiles the global vendor list. Returns gvl itself if it is already compiled.
+     *
+     * @throws IllegalArgumentException if an id is negative
+     */
+    public static CompiledGvl of(Gvl gvl) {
+        if (gvl instanceof CompiledGvl) {
+            return (CompiledGvl) gvl;
+        }
+        return new CompiledGvl(gvl);
+    }
+
+    private static <T> List<T> sorted(List<T> items, ToIntFunction<T> id) {
+        List<T> rv = new ArrayList<>(items);
+        rv.sort(Comparator.comparingInt(id));
+        return Collections.unmodifiableList(rv);
+    }
+
+    private static <T> T[] byId(List<T> items, ToIntFunction<T> id, IntFunction<T[]> newArray) {
+        int maxId = -1;
+        for (T item : items) {
+            int i = id.applyAsInt(item);
+            if (i < 0) {
+                throw new IllegalArgumentException("invalid id: " + i);
+            }
+            maxId = Math.max(maxId, i);
+        }
+
+        T[] rv = newArray.apply(maxId + 1);
+        for (T item : items) {
+            rv[id.applyAsInt(item)] = item;
+        }
+        return rv;
+    }
+
+    private static int max(List<Integer> ids) {
+        int rv = -1;
+        if (ids == null) {
+            return rv;
+        }
+        for (int id : ids) {
+            if (id < 0) {
+                throw new IllegalArgumentException("invalid purpose id: " + id);
+            }
+            rv = Math.max(rv, id);
+        }
+        return rv;
+    }
+
+    private static BitSet[] newBitSets(int length) {
+        BitSet[] rv = new BitSet[length];
+        for (int i = 0; i < length; i++) {
+            rv[i] = new BitSet();
+        }
+        return rv;
+    }
+
+    private static void set(BitSet[] vendorsByPurpose, List<Integer> purposeIds, int vendorId) {
+        if (purposeIds != null) {
+            for (int purposeId : purposeIds) {
+                vendorsByPurpose[purposeId].set(vendorId);
+            }
+        }
+    }
+
+    private static BitSetIntIterable[] toIntIterables(BitSet[] bitSets) {
+        BitSetIntIterable[] rv = new BitSetIntIterable[bitSets.length];
+        for (int i = 0; i < bitSets.length; i++) {
+            rv[i] = BitSetIntIterable.from(bitSets[i]);
+        }
+        return rv;
+    }
+
+    private static <T> T get(T[] byId, int id) {
+        return id < 0 || id >= byId.length ? null : byId[id];
+    }
+
+    private static IntIterable vendors(BitSetIntIterable[] vendorsByPurpose, int purposeId) {
+        return purposeId < 0 || purposeId >= vendorsByPurpose.length
+                ? BitSetIntIterable.EMPTY
+                : vendorsByPurpose[purposeId];
+    }
+
+    @Override
+    public int getGvlSpecificationVersion() {
+        return gvlSpecificationVersion;
+    }
+
+    @Override
+    public int getVendorListVersion() {
+        return vendorListVersion;
+    }
+
+    @Override
+    public int getTcfPolicyVersion() {
+        return tcfPolicyVersion;
+    }
+
+    @Override
+    public Instant getLastUpdated() {
+        return lastUpdated;
+    }
+
+    @Override
+    public List<Purpose> getPurposes() {
+        return purposes;
+    }
+
+    @Override
+    public List<SpecialPurpose> getSpecialPurposes() {
+        return specialPurposes;
+    }
+
+    @Override
+    public List<Feature> getFeatures() {
+        return features;
+    }
+
+    @Override
+    public List<SpecialFeature> getSpecialFeatures() {
+        return specialFeatures;
+    }
+
+    @Override
+    public List<Stack> getStacks() {
+        return stacks;
+    }
+
+    @Override
+    public List<Vendor> getVendors() {
+        return vendors;
+    }
+
+    @Override
+    public Optional<List<DataCategory>> getDataCategories() {
+        return dataCategories;
+    }
+
+    /**
+     * Return the vendor object for a given id
+     *
+     * @param vendorId vendor id
+     * @return A {@link Vendor} object or null if there is no vendor with the id
+     */
+    @Override
+    public Vendor getVendor(int vendorId) {
+        return get(vendorsById, vendorId);
+    }
+
+    /**
+     * @return A {@link Purpose} object or null if there is no purpose with the id
+     */
+    public Purpose getPurpose(int purposeId) {
+        return get(purposesById, purposeId);
+    }
+
+    /**
+     * @return A {@link SpecialPurpose} object or null if there is no special purpose with the id
+     */
+    public SpecialPurpose getSpecialPurpose(int specialPurposeId) {
+        return get(specialPurposesById, specialPurposeId);
+    }
+
+    /**
+     * @return A {@link Feature} object or null if there is no feature with the id
+     */
+    public Feature getFeature(int featureId) {
+        return get(featuresById, featureId);
+    }
+
+    /**
+     * @return A {@link SpecialFeature} object or null if there is no special feature with the id
+     */
+    public SpecialFeature getSpecialFeature(int specialFeatureId) {
+        return get(specialFeaturesById, specialFeatureId);
+    }
+
+    /**
+     * @return A {@link Stack} object or null if there is no stack with the id
+     */
+    public Stack getStack(int stackId) {
+        return get(stacksById, stackId);
+    }
+
+    /**
+     * The largest vendor id of the list, deleted vendors included.
+     *
+     * @return the largest vendor id or -1 if there are no vendors
+     */
+    public int getMaxVendorId() {
+        return vendorsById.length - 1;
+    }
+
+    /**
+     * The vendors, deleted vendors excluded, that request consent for the purpose.
+     *
+     * @return the vendor ids
+     */
+    public IntIterable getConsentVendors(int purposeId) {
+        return vendors(consentVendors, purposeId);
+    }
+
+    /**
+     * The vendors, deleted vendors excluded, that disclose the purpose as legitimate interest.
+     *
+     * @return the vendor ids
+     */
+    public IntIterable getLegIntVendors(int purposeId) {
+        return vendors(legIntVendors, purposeId);
+    }
+
+    /**
+     * The vendors, deleted vendors excluded, that are flexible regarding the legal basis of the
+     * purpose.
+     *
+     * @return the vendor ids
+     */
+    public IntIterable getFlexibleVendors(int purposeId) {
+        return vendors(flexibleVendors, purposeId);
+    }
+}